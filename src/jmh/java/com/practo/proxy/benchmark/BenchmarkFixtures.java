@@ -0,0 +1,103 @@
+package com.practo.proxy.benchmark;
+
+import com.practo.proxy.compression.ResponseCompressor;
+import com.practo.proxy.config.CompressionConfig;
+import com.practo.proxy.config.ServiceConfig;
+import com.practo.proxy.lifecycle.UpstreamWarmup;
+import com.practo.proxy.metrics.ProxyMetrics;
+import com.practo.proxy.resilience.UpstreamGuard;
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.routing.RouteTable;
+import com.practo.proxy.security.JwtAuthenticationFilter;
+import com.practo.proxy.security.ProxyUserDetailsService;
+import com.practo.proxy.security.UserDetailsCache;
+import com.practo.proxy.security.VerifiedTokenCache;
+import com.practo.proxy.service.ExternalService;
+import com.practo.proxy.service.JwtServiceImpl;
+import com.practo.proxy.service.UserDetailsServiceImpl;
+import com.practo.proxy.util.JwtUtil;
+import com.practo.proxy.util.PassThroughResponseErrorHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wires the proxy components by hand, without a Spring context, so benchmarks measure
+ * the hot path alone.
+ */
+final class BenchmarkFixtures {
+
+    static final String SECRET = "cHJveHktc2VydmljZS1iZW5jaG1hcmstc2VjcmV0LTAxMjM0NTY3ODlhYmNkZWY=";
+    static final long EXPIRATION_MILLIS = 86_400_000L;
+
+    private BenchmarkFixtures() {
+    }
+
+    static JwtUtil jwtUtil() {
+        return new JwtUtil(SECRET, EXPIRATION_MILLIS);
+    }
+
+    static RestTemplate restTemplate(OkHttpClient client) {
+        RestTemplate restTemplate = new RestTemplate(new OkHttp3ClientHttpRequestFactory(client));
+        restTemplate.setErrorHandler(new PassThroughResponseErrorHandler());
+        return restTemplate;
+    }
+
+    static RouteTable routeTable(Map<String, String> hosts, RestTemplate restTemplate) {
+        Map<String, ProxyRoute> byName = new HashMap<>();
+        List<ProxyRoute> routes = new ArrayList<>();
+        for (Map.Entry<String, String> host : hosts.entrySet()) {
+            ProxyRoute route = new ProxyRoute(host.getKey(), routes.size(), host.getValue(), restTemplate);
+            byName.put(route.getName(), route);
+            routes.add(route);
+        }
+        RouteTable routeTable = new RouteTable();
+        ReflectionTestUtils.setField(routeTable, "routesByName", byName);
+        ReflectionTestUtils.setField(routeTable, "routes", routes);
+        return routeTable;
+    }
+
+    static JwtServiceImpl jwtService(JwtUtil jwtUtil, RouteTable routeTable) {
+        JwtServiceImpl jwtService = new JwtServiceImpl();
+        ReflectionTestUtils.setField(jwtService, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(jwtService, "verifiedTokenCache", new VerifiedTokenCache(10_000));
+        ReflectionTestUtils.setField(jwtService, "routeTable", routeTable);
+        return jwtService;
+    }
+
+    static ProxyMetrics proxyMetrics() {
+        return new ProxyMetrics(new SimpleMeterRegistry());
+    }
+
+    static JwtAuthenticationFilter authenticationFilter(JwtServiceImpl jwtService, RouteTable routeTable) {
+        UserDetailsServiceImpl userDetailsService = new UserDetailsServiceImpl();
+        ReflectionTestUtils.setField(userDetailsService, "proxyUserDetailsService", new ProxyUserDetailsService());
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtService", jwtService);
+        ReflectionTestUtils.setField(filter, "userDetailsCache", new UserDetailsCache(userDetailsService,
+                new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(5)));
+        ReflectionTestUtils.setField(filter, "routeTable", routeTable);
+        ReflectionTestUtils.setField(filter, "proxyMetrics", proxyMetrics());
+        ReflectionTestUtils.setField(filter, "upstreamWarmup", new UpstreamWarmup());
+        return filter;
+    }
+
+    static ExternalService externalService() {
+        UpstreamGuard upstreamGuard = new UpstreamGuard(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(upstreamGuard, "serviceConfig", new ServiceConfig());
+        ExternalService externalService = new ExternalService();
+        ReflectionTestUtils.setField(externalService, "upstreamGuard", upstreamGuard);
+        ReflectionTestUtils.setField(externalService, "proxyMetrics", proxyMetrics());
+        ReflectionTestUtils.setField(externalService, "responseCompressor",
+                new ResponseCompressor(new CompressionConfig(), new SimpleMeterRegistry()));
+        return externalService;
+    }
+}
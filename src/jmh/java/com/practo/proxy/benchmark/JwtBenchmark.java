@@ -0,0 +1,77 @@
+package com.practo.proxy.benchmark;
+
+import com.practo.proxy.security.VerifiedToken;
+import com.practo.proxy.service.JwtServiceImpl;
+import com.practo.proxy.util.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation, single and batched, one full signature verification, and verification
+ * through the verified-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final List<String> SERVICES = Arrays.asList("titan", "book");
+    private static final int BATCH_SIZE = 100;
+
+    private JwtUtil jwtUtil;
+    private JwtServiceImpl jwtService;
+    private String token;
+    private List<String> subjects;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = BenchmarkFixtures.jwtUtil();
+        jwtService = BenchmarkFixtures.jwtService(jwtUtil, BenchmarkFixtures.routeTable(
+                Map.of("titan", "http://localhost/", "book", "http://localhost/"), null));
+        token = jwtUtil.generateToken("benchmark-user", SERVICES);
+        jwtService.verifyToken(token);
+        subjects = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            subjects.add("benchmark-user-" + i);
+        }
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("benchmark-user", SERVICES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<String> generateTokenBatch() {
+        return jwtUtil.generateTokens(subjects, SERVICES);
+    }
+
+    @Benchmark
+    public VerifiedToken parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyCachedToken() {
+        return jwtService.verifyToken(token);
+    }
+}
@@ -0,0 +1,94 @@
+package com.practo.proxy.benchmark;
+
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.service.ExternalService;
+import com.practo.proxy.service.UpstreamResponse;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proxying a GET through {@link ExternalService} to a local MockWebServer upstream,
+ * both streamed to the client and fully buffered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProxyEndToEndBenchmark {
+
+    @Param({"1024", "65536"})
+    public int payloadBytes;
+
+    private MockWebServer upstream;
+    private OkHttpClient client;
+    private ExternalService externalService;
+    private ProxyRoute route;
+    private URI url;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] payload = new byte[payloadBytes];
+        Arrays.fill(payload, (byte) 'x');
+        upstream = new MockWebServer();
+        upstream.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                        .setBody(new Buffer().write(payload));
+            }
+        });
+        upstream.start();
+
+        client = new OkHttpClient();
+        route = new ProxyRoute("titan", 0, upstream.url("/").toString(), BenchmarkFixtures.restTemplate(client));
+        externalService = BenchmarkFixtures.externalService();
+        url = route.uriOf("users/42", null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.connectionPool().evictAll();
+        upstream.shutdown();
+    }
+
+    @Benchmark
+    public int streamGet() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/proxy/titan/v1/users/42");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        externalService.streamService(route, url, HttpMethod.GET, request, response);
+        return response.getContentAsByteArray().length;
+    }
+
+    @Benchmark
+    public UpstreamResponse bufferedGet() {
+        return externalService.exchange(route, url, HttpMethod.GET, new HttpHeaders(), null, payloadBytes);
+    }
+}
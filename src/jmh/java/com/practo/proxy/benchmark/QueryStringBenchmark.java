@@ -0,0 +1,65 @@
+package com.practo.proxy.benchmark;
+
+import com.practo.proxy.routing.UpstreamUri;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upstream URI construction from the raw client path and query, for a query that is forwarded
+ * verbatim and one that needs percent-encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryStringBenchmark {
+
+    private static final String HOST = "http://titan.internal:8080/";
+    private static final String ENDPOINT = "users/42/appointments";
+
+    @Param({"2", "20"})
+    public int parameterCount;
+
+    private String encodedQuery;
+    private String unencodedQuery;
+
+    @Setup
+    public void setUp() {
+        StringBuilder encoded = new StringBuilder();
+        StringBuilder unencoded = new StringBuilder();
+        for (int i = 0; i < parameterCount; i++) {
+            if (i > 0) {
+                encoded.append('&');
+                unencoded.append('&');
+            }
+            encoded.append("param").append(i % 2).append("=value%20").append(i);
+            unencoded.append("param").append(i % 2).append("=value |").append(i);
+        }
+        encodedQuery = encoded.toString();
+        unencodedQuery = unencoded.toString();
+    }
+
+    @Benchmark
+    public URI verbatimQuery() {
+        return UpstreamUri.build(HOST, ENDPOINT, encodedQuery);
+    }
+
+    @Benchmark
+    public URI encodedQuery() {
+        return UpstreamUri.build(HOST, ENDPOINT, unencodedQuery);
+    }
+}
@@ -0,0 +1,25 @@
+package com.practo.proxy.loadtest;
+
+/**
+ * Load test settings, read from {@code loadtest.*} system properties.
+ */
+final class LoadTestOptions {
+
+    final double ratePerSecond = doubleOption("rate", 500);
+    final int durationSeconds = intOption("duration", 60);
+    final int warmupSeconds = intOption("warmup", 10);
+    final int tokens = intOption("tokens", 100);
+    final long stubLatencyMillis = intOption("stub.latency-ms", 20);
+    final long stubJitterMillis = intOption("stub.jitter-ms", 10);
+    final int stubPayloadBytes = intOption("stub.payload-bytes", 4096);
+    final double stubErrorRate = doubleOption("stub.error-rate", 0.0);
+    final String report = System.getProperty("loadtest.report", "target/loadtest-report.json");
+
+    private static int intOption(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty("loadtest." + name, Integer.toString(defaultValue)));
+    }
+
+    private static double doubleOption(String name, double defaultValue) {
+        return Double.parseDouble(System.getProperty("loadtest." + name, Double.toString(defaultValue)));
+    }
+}
@@ -0,0 +1,211 @@
+package com.practo.proxy.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practo.proxy.ProxyServiceApplication;
+import com.practo.proxy.util.JwtUtil;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Offline capacity test: starts Titan and Book stubs, boots the proxy against them and drives
+ * {@code /proxy/titan/v1/*} and {@code /proxy/book/v1/*} at a fixed arrival rate with pre-minted JWTs.
+ * Latency is measured from each request's intended send time, which corrects for coordinated
+ * omission when the proxy falls behind the schedule.
+ */
+public final class LoadTestRunner {
+
+    private static final String SECRET = "cHJveHktc2VydmljZS1sb2FkdGVzdC1zZWNyZXQtMDEyMzQ1Njc4OWFiY2RlZg==";
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final LoadTestOptions options;
+    private final Histogram corrected = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+    private final Histogram uncorrected = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    private final LongAdder failures = new LongAdder();
+
+    private LoadTestRunner(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Runs the load test. Settings are read from {@code loadtest.*} system properties; any
+     * {@code proxy.*} or {@code services.*} system property is applied to the proxy as well.
+     *
+     * @param args ignored
+     * @throws Exception if the stubs, the proxy or the report fail
+     */
+    public static void main(String[] args) throws Exception {
+        new LoadTestRunner(new LoadTestOptions()).run();
+    }
+
+    private void run() throws Exception {
+        try (StubUpstream titan = new StubUpstream(options);
+             StubUpstream book = new StubUpstream(options);
+             ConfigurableApplicationContext context = startProxy(titan.url(), book.url())) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            List<String> tokens = mintTokens(context.getBean(JwtUtil.class));
+            OkHttpClient client = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(1000, 1, TimeUnit.MINUTES))
+                    .readTimeout(1, TimeUnit.MINUTES)
+                    .build();
+
+            long measuredNanos = drive(client, baseUrl, tokens);
+            writeReport(measuredNanos);
+            client.connectionPool().evictAll();
+        }
+    }
+
+    private ConfigurableApplicationContext startProxy(String titanUrl, String bookUrl) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("services.hosts.titan", titanUrl);
+        properties.put("services.hosts.book", bookUrl);
+        properties.put("services.keys.titan", "loadtest");
+        properties.put("services.keys.book", "loadtest");
+        properties.put("jwt.secret", SECRET);
+        properties.put("spring.security.oauth2.client.registration.github.client-id", "loadtest");
+        properties.put("spring.security.oauth2.client.registration.github.client-secret", "loadtest");
+        properties.put("spring.autoconfigure.exclude",
+                "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration");
+        return new SpringApplicationBuilder(ProxyServiceApplication.class)
+                .properties(properties)
+                .run();
+    }
+
+    private List<String> mintTokens(JwtUtil jwtUtil) {
+        List<String> subjects = new ArrayList<>(options.tokens);
+        for (int i = 0; i < options.tokens; i++) {
+            subjects.add("loadtest-user-" + i);
+        }
+        return jwtUtil.generateTokens(subjects, List.of("titan", "book"));
+    }
+
+    private long drive(OkHttpClient client, String baseUrl, List<String> tokens) throws InterruptedException {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.ratePerSecond);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String service = (i & 1) == 0 ? "titan" : "book";
+            Request request = new Request.Builder()
+                    .url(baseUrl + "/proxy/" + service + "/v1/items/" + (i % 1000))
+                    .header("Authorization", "Bearer " + tokens.get((int) (i % tokens.size())))
+                    .build();
+            boolean measured = intended >= measureFrom;
+            executor.execute(() -> send(client, request, intended, measured));
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        return end - measureFrom;
+    }
+
+    private void send(OkHttpClient client, Request request, long intendedNanos, boolean measured) {
+        long sentNanos = System.nanoTime();
+        int status;
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (body != null) {
+                body.bytes();
+            }
+            status = response.code();
+        } catch (IOException e) {
+            status = -1;
+        }
+        long doneNanos = System.nanoTime();
+        if (!measured) {
+            return;
+        }
+        corrected.recordValue(Math.min(MAX_LATENCY_NANOS, doneNanos - intendedNanos));
+        uncorrected.recordValue(Math.min(MAX_LATENCY_NANOS, doneNanos - sentNanos));
+        if (status < 0) {
+            failures.increment();
+        } else {
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+    }
+
+    private void writeReport(long measuredNanos) throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("targetRatePerSecond", options.ratePerSecond);
+        report.put("achievedRatePerSecond", corrected.getTotalCount() / (measuredNanos / 1e9));
+        report.put("requests", corrected.getTotalCount());
+        report.put("connectionFailures", failures.sum());
+        Map<String, Long> statusCounts = new LinkedHashMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(Integer.toString(status), count.sum()));
+        report.put("statuses", statusCounts);
+        report.put("latencyMillis", percentiles(corrected));
+        report.put("uncorrectedLatencyMillis", percentiles(uncorrected));
+        report.put("peakHeapBytes", peakHeap);
+        report.put("heapUsedBytes", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        report.put("peakPlatformThreads", threads.getPeakThreadCount());
+        report.put("stub", Map.of(
+                "latencyMillis", options.stubLatencyMillis,
+                "jitterMillis", options.stubJitterMillis,
+                "payloadBytes", options.stubPayloadBytes,
+                "errorRate", options.stubErrorRate));
+
+        String json = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        File file = new File(options.report);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        Files.writeString(file.toPath(), json);
+        System.out.println(json);
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", histogram.getValueAtPercentile(50) / 1e6);
+        percentiles.put("p90", histogram.getValueAtPercentile(90) / 1e6);
+        percentiles.put("p99", histogram.getValueAtPercentile(99) / 1e6);
+        percentiles.put("p99.9", histogram.getValueAtPercentile(99.9) / 1e6);
+        percentiles.put("max", histogram.getMaxValue() / 1e6);
+        return percentiles;
+    }
+}
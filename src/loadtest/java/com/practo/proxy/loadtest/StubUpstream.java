@@ -0,0 +1,51 @@
+package com.practo.proxy.loadtest;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded upstream answering every request after a configurable latency with a fixed-size payload,
+ * failing a configurable share of requests with 503.
+ */
+final class StubUpstream implements AutoCloseable {
+
+    private final MockWebServer server = new MockWebServer();
+
+    StubUpstream(LoadTestOptions options) throws IOException {
+        byte[] payload = new byte[options.stubPayloadBytes];
+        Arrays.fill(payload, (byte) 'x');
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long jitter = options.stubJitterMillis > 0 ? random.nextLong(options.stubJitterMillis + 1) : 0;
+                MockResponse response = new MockResponse()
+                        .setHeadersDelay(options.stubLatencyMillis + jitter, TimeUnit.MILLISECONDS);
+                if (random.nextDouble() < options.stubErrorRate) {
+                    return response.setResponseCode(503);
+                }
+                return response
+                        .setHeader("Content-Type", "application/json")
+                        .setBody(new Buffer().write(payload));
+            }
+        });
+        server.start();
+    }
+
+    String url() {
+        return server.url("/").toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+}
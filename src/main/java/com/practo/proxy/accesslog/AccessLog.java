@@ -0,0 +1,254 @@
+package com.practo.proxy.accesslog;
+
+import com.practo.proxy.config.AccessLogConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Access log of proxied calls. Request threads only place a record in a lock-free ring buffer;
+ * a background writer drains it in batches into a direct buffer and appends each batch to a
+ * rolling file through a {@link FileChannel}. Records that do not fit in the ring are dropped
+ * and counted, so logging never blocks the proxy path.
+ *
+ * <p>Each line holds tab-separated fields: timestamp, subject, service, method, endpoint,
+ * status, bytes and latency in microseconds.
+ */
+@Component
+public class AccessLog implements DisposableBean {
+
+    /**
+     * Request attribute holding the number of response body bytes received from the upstream.
+     */
+    public static final String RESPONSE_BYTES_ATTRIBUTE = AccessLog.class.getName() + ".RESPONSE_BYTES";
+
+    private static final int MAX_FIELD_BYTES = 2048;
+    private static final int MAX_RECORD_BYTES = 4 * MAX_FIELD_BYTES + 128;
+    private static final int WRITE_BUFFER_BYTES = 256 * 1024;
+
+    private final AccessLogConfig config;
+    private final AccessLogBuffer buffer;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+    private final StringBuilder timestamp = new StringBuilder(32);
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writeErrors = new LongAdder();
+    private final Path file;
+    private FileChannel channel;
+    private long fileSize;
+    private int bufferedRecords;
+    private Thread writer;
+    private volatile boolean running;
+
+    public AccessLog(AccessLogConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.buffer = new AccessLogBuffer(config.getCapacity());
+        this.file = Paths.get(config.getFile());
+        FunctionCounter.builder("proxy.access.log.records", written, LongAdder::sum)
+                .tag("result", "written")
+                .register(meterRegistry);
+        FunctionCounter.builder("proxy.access.log.records", buffer, AccessLogBuffer::getDropped)
+                .tag("result", "dropped")
+                .register(meterRegistry);
+        FunctionCounter.builder("proxy.access.log.write.errors", writeErrors, LongAdder::sum)
+                .register(meterRegistry);
+        Gauge.builder("proxy.access.log.pending", buffer, AccessLogBuffer::getPending)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the background writer.
+     */
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Records a proxied call. Never blocks; the record is dropped if the writer is behind.
+     *
+     * @param subject the JWT subject of the caller
+     * @param service the upstream service
+     * @param method the HTTP method
+     * @param endpoint the upstream endpoint
+     * @param status the status returned to the client
+     * @param bytes the response body bytes received from the upstream
+     * @param latencyNanos the time spent serving the call
+     */
+    public void record(String subject, String service, String method, String endpoint,
+                       int status, long bytes, long latencyNanos) {
+        if (running) {
+            buffer.offer(System.currentTimeMillis(), subject, service, method, endpoint, status, bytes,
+                    latencyNanos);
+        }
+    }
+
+    /**
+     * Stops the writer after it has written the records already queued.
+     *
+     * @throws InterruptedException if interrupted while waiting for the writer
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void writeLoop() {
+        long flushIntervalNanos = config.getFlushInterval().toNanos();
+        while (true) {
+            boolean stopping = !running;
+            int drained = buffer.drain(config.getBatchSize(), this::append);
+            flush();
+            if (drained == 0) {
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+        closeChannel();
+    }
+
+    private void append(AccessLogBuffer.Slot slot) {
+        if (writeBuffer.remaining() < MAX_RECORD_BYTES) {
+            flush();
+        }
+        timestamp.setLength(0);
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(slot.timestampMillis), timestamp);
+        putAscii(timestamp);
+        writeBuffer.put((byte) '\t');
+        putField(slot.subject);
+        writeBuffer.put((byte) '\t');
+        putField(slot.service);
+        writeBuffer.put((byte) '\t');
+        putField(slot.method);
+        writeBuffer.put((byte) '\t');
+        putField(slot.endpoint);
+        writeBuffer.put((byte) '\t');
+        putAscii(Integer.toString(slot.status));
+        writeBuffer.put((byte) '\t');
+        putAscii(Long.toString(slot.bytes));
+        writeBuffer.put((byte) '\t');
+        putAscii(Long.toString(TimeUnit.NANOSECONDS.toMicros(slot.latencyNanos)));
+        writeBuffer.put((byte) '\n');
+        bufferedRecords++;
+    }
+
+    private void putAscii(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            writeBuffer.put((byte) value.charAt(i));
+        }
+    }
+
+    /**
+     * Writes a text field as UTF-8, truncated to a fixed maximum and with separators replaced
+     * so that the line layout cannot be broken by client-controlled values.
+     */
+    private void putField(String value) {
+        if (value == null || value.isEmpty()) {
+            writeBuffer.put((byte) '-');
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_FIELD_BYTES);
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            writeBuffer.put(b == '\t' || b == '\n' || b == '\r' ? (byte) ' ' : b);
+        }
+    }
+
+    private void flush() {
+        if (writeBuffer.position() == 0) {
+            return;
+        }
+        writeBuffer.flip();
+        try {
+            if (channel == null || fileSize + writeBuffer.remaining() > config.getMaxFileBytes()) {
+                roll();
+            }
+            while (writeBuffer.hasRemaining()) {
+                fileSize += channel.write(writeBuffer);
+            }
+            written.add(bufferedRecords);
+        } catch (IOException e) {
+            writeErrors.increment();
+            closeChannel();
+        } finally {
+            writeBuffer.clear();
+            bufferedRecords = 0;
+        }
+    }
+
+    /**
+     * Opens the log file, first rotating it to {@code <file>.1 .. <file>.<maxFiles>} if it is full.
+     */
+    private void roll() throws IOException {
+        closeChannel();
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        if (Files.exists(file) && Files.size(file) > 0
+                && Files.size(file) + writeBuffer.remaining() > config.getMaxFileBytes()) {
+            for (int i = config.getMaxFiles() - 1; i >= 1; i--) {
+                Path rolled = rolledFile(i);
+                if (Files.exists(rolled)) {
+                    Files.move(rolled, rolledFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (config.getMaxFiles() > 0) {
+                Files.move(file, rolledFile(1), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.delete(file);
+            }
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    private Path rolledFile(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            writeErrors.increment();
+        } finally {
+            channel = null;
+        }
+    }
+}
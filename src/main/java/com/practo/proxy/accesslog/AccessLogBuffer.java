@@ -0,0 +1,114 @@
+package com.practo.proxy.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated access log records. Producers
+ * claim a sequence with one CAS and publish the filled slot with a volatile write; when the ring
+ * is full the record is dropped and counted instead of waiting for the writer.
+ */
+final class AccessLogBuffer {
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    AccessLogBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * Adds a record without blocking.
+     *
+     * @return true if the record was queued, false if it was dropped because the ring is full
+     */
+    boolean offer(long timestampMillis, String subject, String service, String method, String endpoint,
+                  int status, long bytes, long latencyNanos) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() >= slots.length) {
+                dropped.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.timestampMillis = timestampMillis;
+        slot.subject = subject;
+        slot.service = service;
+        slot.method = method;
+        slot.endpoint = endpoint;
+        slot.status = status;
+        slot.bytes = bytes;
+        slot.latencyNanos = latencyNanos;
+        slot.published = sequence;
+        return true;
+    }
+
+    /**
+     * Hands up to {@code maxRecords} published records to a sink, in order, and frees their slots.
+     * Must only be called from the single writer thread.
+     *
+     * @return the number of records drained
+     */
+    int drain(int maxRecords, Sink sink) {
+        long next = head.get();
+        int drained = 0;
+        while (drained < maxRecords) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.published != next) {
+                break;
+            }
+            sink.accept(slot);
+            slot.subject = null;
+            slot.service = null;
+            slot.method = null;
+            slot.endpoint = null;
+            next++;
+            drained++;
+        }
+        if (drained > 0) {
+            head.lazySet(next);
+        }
+        return drained;
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    long getPending() {
+        return tail.get() - head.get();
+    }
+
+    /**
+     * Receives drained records; the slot must not be retained after the call.
+     */
+    interface Sink {
+        void accept(Slot slot);
+    }
+
+    /**
+     * One fixed-layout access log record.
+     */
+    static final class Slot {
+        volatile long published = -1;
+        long timestampMillis;
+        String subject;
+        String service;
+        String method;
+        String endpoint;
+        int status;
+        long bytes;
+        long latencyNanos;
+    }
+}
@@ -0,0 +1,116 @@
+package com.practo.proxy.cache;
+
+import com.practo.proxy.service.UpstreamResponse;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * An upstream GET response held in the response cache together with its freshness lifetime.
+ */
+public final class CachedResponse {
+
+    private static final int HEADER_OVERHEAD_BYTES = 512;
+
+    private final UpstreamResponse response;
+    private final long freshUntilMillis;
+
+    public CachedResponse(UpstreamResponse response, long freshUntilMillis) {
+        this.response = response;
+        this.freshUntilMillis = freshUntilMillis;
+    }
+
+    /**
+     * Gets the cached upstream response.
+     *
+     * @return the upstream response
+     */
+    public UpstreamResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * Gets the end of the freshness lifetime.
+     *
+     * @return the epoch milliseconds until which the entry may be served without revalidation
+     */
+    public long getFreshUntilMillis() {
+        return freshUntilMillis;
+    }
+
+    /**
+     * Checks whether the entry may be served without asking the upstream.
+     *
+     * @param nowMillis the current time as epoch milliseconds
+     * @return true if the entry is fresh
+     */
+    public boolean isFresh(long nowMillis) {
+        return nowMillis < freshUntilMillis;
+    }
+
+    /**
+     * Checks whether the entry carries a validator usable for a conditional request.
+     *
+     * @return true if the entry has an ETag or Last-Modified header
+     */
+    public boolean hasValidator() {
+        HttpHeaders headers = response.getHeaders();
+        return headers.getETag() != null || headers.getFirst(HttpHeaders.LAST_MODIFIED) != null;
+    }
+
+    /**
+     * Adds {@code If-None-Match} and {@code If-Modified-Since} headers for revalidating this entry.
+     *
+     * @param headers the upstream request headers to add to
+     */
+    public void addConditionalHeaders(HttpHeaders headers) {
+        HttpHeaders cached = response.getHeaders();
+        if (cached.getETag() != null) {
+            headers.set(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+        }
+        String lastModified = cached.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (lastModified != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+    }
+
+    /**
+     * Evaluates a client's conditional GET against this entry, using the weak comparison
+     * {@code If-None-Match} calls for. {@code If-Modified-Since} is only consulted when no
+     * {@code If-None-Match} is given.
+     *
+     * @param ifNoneMatch the client's {@code If-None-Match} header, or null
+     * @param ifModifiedSince the client's {@code If-Modified-Since} as epoch milliseconds, or -1
+     * @return true if the client's copy is current and a 304 may be sent
+     */
+    public boolean isNotModified(String ifNoneMatch, long ifModifiedSince) {
+        HttpHeaders cached = response.getHeaders();
+        if (ifNoneMatch != null) {
+            String etag = cached.getETag();
+            if (etag == null) {
+                return false;
+            }
+            String opaqueTag = opaqueTag(etag);
+            for (String candidate : ifNoneMatch.split(",")) {
+                candidate = candidate.trim();
+                if (candidate.equals("*") || opaqueTag(candidate).equals(opaqueTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long lastModified = cached.getLastModified();
+        return ifModifiedSince >= 0 && lastModified >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * Gets the weight of the entry for the size-bounded eviction policy.
+     *
+     * @return the approximate retained size in bytes
+     */
+    public int weight() {
+        return response.getBody().length + HEADER_OVERHEAD_BYTES;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,260 @@
+package com.practo.proxy.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.practo.proxy.compression.ResponseCompressor;
+import com.practo.proxy.config.ResponseCacheConfig;
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.security.JwtAuthenticationFilter;
+import com.practo.proxy.security.VerifiedToken;
+import com.practo.proxy.service.UpstreamResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process cache of upstream GET responses. Entries are keyed by route, path, normalized query
+ * and the caller's authorized services, honor the upstream {@code Cache-Control}/{@code Expires}
+ * lifetime and are bounded by total body size with Caffeine's W-TinyLFU eviction.
+ */
+@Component
+public class ResponseCache {
+
+    private final ResponseCacheConfig config;
+    private final Cache<String, CachedResponse> cache;
+    private final Counter notModified;
+    private final Counter modified;
+
+    public ResponseCache(ResponseCacheConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.getMaxBytes())
+                .weigher((String key, CachedResponse value) -> value.weight())
+                .expireAfter(new EntryExpiry(config.getStaleRetention().toMillis()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "proxy.response");
+        this.notModified = Counter.builder("proxy.cache.revalidations")
+                .tag("result", "not_modified")
+                .register(meterRegistry);
+        this.modified = Counter.builder("proxy.cache.revalidations")
+                .tag("result", "modified")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks whether responses are cached at all.
+     *
+     * @return true if the cache is enabled
+     */
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Gets the largest body that is cached.
+     *
+     * @return the maximum entry size in bytes
+     */
+    public int getMaxEntryBytes() {
+        return config.getMaxEntryBytes();
+    }
+
+    /**
+     * Builds the cache key of a proxied GET request. The key includes every client header sent on
+     * shared calls and the encodings negotiated with the upstream, as cached bodies are stored in
+     * the representation the upstream chose; whatever the upstream names in {@code Vary} can only
+     * be a header it was sent, so it is always covered.
+     *
+     * @param route the route of the request
+     * @param endpoint the upstream endpoint
+     * @param request the client request
+     * @return the cache key
+     */
+    public String key(ProxyRoute route, String endpoint, HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(route.getName()).append(' ').append(endpoint).append('?');
+        for (Map.Entry<String, String[]> param : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            String name = URLEncoder.encode(param.getKey(), StandardCharsets.UTF_8);
+            for (String value : param.getValue()) {
+                key.append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8)).append('&');
+            }
+        }
+        key.append(' ').append(ResponseCompressor.upstreamAcceptEncoding(request)).append('\n');
+        route.getHeaderPolicy().appendKey(request, key);
+        VerifiedToken token = (VerifiedToken) request.getAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTRIBUTE);
+        if (token != null) {
+            List<String> services = new ArrayList<>(token.getServices());
+            Collections.sort(services);
+            key.append(String.join(",", services));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Checks whether the client asked to bypass fresh cache entries.
+     *
+     * @param request the client request
+     * @return true if the request carries {@code Cache-Control: no-cache} or {@code Pragma: no-cache}
+     */
+    public boolean requiresRevalidation(HttpServletRequest request) {
+        String cacheControl = request.getHeader(HttpHeaders.CACHE_CONTROL);
+        String pragma = request.getHeader(HttpHeaders.PRAGMA);
+        return (cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-cache"))
+                || (pragma != null && pragma.toLowerCase(Locale.ROOT).contains("no-cache"));
+    }
+
+    /**
+     * Looks up a cached response, fresh or stale.
+     *
+     * @param key the cache key
+     * @return the cached response, or null on a miss
+     */
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Stores an upstream response if its status and caching headers allow it. The key covers every
+     * header sent on the call, so any header named in its {@code Vary} is keyed.
+     *
+     * @param key the cache key
+     * @param response the upstream response
+     */
+    public void store(String key, UpstreamResponse response) {
+        if (response.getStatus() != HttpStatus.OK.value() || response.getBody().length > config.getMaxEntryBytes()) {
+            return;
+        }
+        long freshnessMillis = freshnessMillis(response.getHeaders());
+        if (freshnessMillis < 0) {
+            return;
+        }
+        CachedResponse entry = new CachedResponse(response, System.currentTimeMillis() + freshnessMillis);
+        if (freshnessMillis > 0 || entry.hasValidator()) {
+            cache.put(key, entry);
+        }
+    }
+
+    /**
+     * Refreshes a stale entry after the upstream answered a conditional request with 304.
+     *
+     * @param key the cache key
+     * @param cached the stale entry
+     * @param notModifiedResponse the 304 response of the upstream
+     * @return the refreshed entry, carrying the cached body
+     */
+    public CachedResponse revalidated(String key, CachedResponse cached, UpstreamResponse notModifiedResponse) {
+        notModified.increment();
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(cached.getResponse().getHeaders());
+        for (String name : new String[] {HttpHeaders.CACHE_CONTROL, HttpHeaders.EXPIRES, HttpHeaders.ETAG,
+                HttpHeaders.LAST_MODIFIED, HttpHeaders.DATE}) {
+            List<String> values = notModifiedResponse.getHeaders().get(name);
+            if (values != null) {
+                headers.put(name, values);
+            }
+        }
+        UpstreamResponse response = new UpstreamResponse(cached.getResponse().getStatus(), headers,
+                cached.getResponse().getBody());
+        long freshnessMillis = Math.max(0, freshnessMillis(headers));
+        CachedResponse refreshed = new CachedResponse(response, System.currentTimeMillis() + freshnessMillis);
+        cache.put(key, refreshed);
+        return refreshed;
+    }
+
+    /**
+     * Records that a stale entry was replaced by a full upstream response.
+     */
+    public void recordModified() {
+        modified.increment();
+    }
+
+    /**
+     * Computes how long a response may be served from cache.
+     *
+     * @param headers the upstream response headers
+     * @return the freshness lifetime in milliseconds, or -1 if the response must not be stored
+     */
+    static long freshnessMillis(HttpHeaders headers) {
+        if (headers.getVary().contains("*")) {
+            return -1;
+        }
+        String cacheControl = headers.getCacheControl();
+        long maxAge = -1;
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-store") || directive.equals("private")) {
+                    return -1;
+                }
+                if (directive.equals("no-cache")) {
+                    return 0;
+                }
+                if (directive.startsWith("s-maxage=")) {
+                    maxAge = parseSeconds(directive.substring("s-maxage=".length()));
+                } else if (directive.startsWith("max-age=") && maxAge < 0) {
+                    maxAge = parseSeconds(directive.substring("max-age=".length()));
+                }
+            }
+        }
+        if (maxAge >= 0) {
+            return TimeUnit.SECONDS.toMillis(maxAge);
+        }
+        long expires = headers.getExpires();
+        if (expires > 0) {
+            long date = headers.getDate() > 0 ? headers.getDate() : System.currentTimeMillis();
+            return Math.max(0, expires - date);
+        }
+        return 0;
+    }
+
+    private static long parseSeconds(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static final class EntryExpiry implements Expiry<String, CachedResponse> {
+
+        private final long staleRetentionMillis;
+
+        EntryExpiry(long staleRetentionMillis) {
+            this.staleRetentionMillis = staleRetentionMillis;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+            long remainingMillis = Math.max(0, value.getFreshUntilMillis() - System.currentTimeMillis());
+            if (value.hasValidator()) {
+                remainingMillis += staleRetentionMillis;
+            }
+            return TimeUnit.MILLISECONDS.toNanos(remainingMillis);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.practo.proxy.client;
+
+import com.practo.proxy.config.HedgingProperties;
+import com.practo.proxy.resilience.UpstreamGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hedges GET and HEAD requests of one service. The request is sent, and if no response has
+ * arrived within a percentile of the service's recent response times, an identical request is
+ * sent as well. The first response wins and the other call is cancelled. Hedges are granted by the
+ * service's {@link UpstreamGuard}: a hedge is only sent while the bulkhead and adaptive limit have
+ * room and the retry budget it shares with retries allows it, so a slow service gets at most that
+ * much extra load, and it holds those permits until it is answered.
+ * Requests are raced on response headers, so bodies are still streamed.
+ */
+class HedgingInterceptor implements Interceptor {
+
+    private final String service;
+    private final OkHttpClient client;
+    private final UpstreamGuard upstreamGuard;
+    private final ExecutorService executor;
+    private final LatencyPercentile delay;
+    private final Counter fired;
+    private final Counter won;
+    private final Counter guardDenied;
+
+    HedgingInterceptor(String service, HedgingProperties properties, OkHttpClient client, UpstreamGuard upstreamGuard,
+                       ExecutorService executor, MeterRegistry meterRegistry) {
+        this.service = service;
+        this.client = client;
+        this.upstreamGuard = upstreamGuard;
+        this.executor = executor;
+        this.delay = new LatencyPercentile(properties.getPercentile(), properties.getInitialDelay().toNanos(),
+                properties.getMinDelay().toNanos());
+        this.fired = hedgeCounter(service, "fired", meterRegistry);
+        this.won = hedgeCounter(service, "won", meterRegistry);
+        this.guardDenied = hedgeCounter(service, "no_capacity", meterRegistry);
+        Gauge.builder("proxy.upstream.hedge.delay", delay, d -> d.getNanos() / 1e6)
+                .tag("service", service)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    private static Counter hedgeCounter(String service, String result, MeterRegistry meterRegistry) {
+        return Counter.builder("proxy.upstream.hedges")
+                .tag("service", service)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method()) && !"HEAD".equals(request.method())) {
+            return chain.proceed(request);
+        }
+        Race race = new Race();
+        race.start(client.newCall(request), null);
+        try {
+            if (!race.await(delay.getNanos())) {
+                UpstreamGuard.Hedge hedge = upstreamGuard.tryHedge(service);
+                if (hedge != null) {
+                    fired.increment();
+                    race.start(client.newCall(request), hedge);
+                } else {
+                    guardDenied.increment();
+                }
+            }
+            return race.result();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            race.abandon();
+            throw new InterruptedIOException("Interrupted while waiting for " + request.url());
+        }
+    }
+
+    /**
+     * Calls racing for one request. The first response is kept, later ones are closed, and the
+     * race fails only once every call has failed. Waiting uses a lock rather than a monitor, so
+     * a virtual caller thread is not pinned to its carrier.
+     */
+    private final class Race {
+
+        private final Call[] calls = new Call[2];
+        private final long startNanos = System.nanoTime();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition decided = lock.newCondition();
+        private int started;
+        private int failed;
+        private Response winner;
+        private Call winnerCall;
+        private IOException failure;
+        private boolean abandoned;
+
+        /**
+         * Starts a call of the race.
+         *
+         * @param hedge the guard permits of a hedge, or null for the original request
+         */
+        private void start(Call call, UpstreamGuard.Hedge hedge) {
+            lock.lock();
+            try {
+                calls[started++] = call;
+            } finally {
+                lock.unlock();
+            }
+            executor.execute(() -> {
+                try {
+                    Response response = call.execute();
+                    if (hedge != null) {
+                        hedge.responseReceived(response.code());
+                    }
+                    onResponse(call, response, hedge != null);
+                } catch (IOException e) {
+                    if (hedge != null) {
+                        hedge.abandoned();
+                    }
+                    onFailure(e);
+                }
+            });
+        }
+
+        private void onResponse(Call call, Response response, boolean hedge) {
+            lock.lock();
+            try {
+                if (winner == null && !abandoned) {
+                    winner = response;
+                    winnerCall = call;
+                    // The latency the caller saw, so the percentile is not skewed by winning hedges.
+                    delay.record(System.nanoTime() - startNanos);
+                    if (hedge) {
+                        won.increment();
+                    }
+                    decided.signalAll();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            response.close();
+        }
+
+        private void onFailure(IOException e) {
+            lock.lock();
+            try {
+                if (failure == null) {
+                    failure = e;
+                }
+                failed++;
+                decided.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Waits for a response or for all started calls to fail.
+         *
+         * @return true if the race is decided
+         */
+        private boolean await(long nanos) throws InterruptedException {
+            lock.lock();
+            try {
+                long remaining = nanos;
+                while (winner == null && failed < started && remaining > 0) {
+                    remaining = decided.awaitNanos(remaining);
+                }
+                return winner != null || failed == started;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Response result() throws IOException, InterruptedException {
+            lock.lock();
+            try {
+                while (winner == null && failed < started) {
+                    decided.await();
+                }
+                for (int i = 0; i < started; i++) {
+                    if (calls[i] != winnerCall) {
+                        calls[i].cancel();
+                    }
+                }
+                if (winner == null) {
+                    throw failure;
+                }
+                return winner;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void abandon() {
+            lock.lock();
+            try {
+                abandoned = true;
+                for (int i = 0; i < started; i++) {
+                    calls[i].cancel();
+                }
+                if (winner != null) {
+                    winner.close();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.practo.proxy.client;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Percentile of recent response times, estimated from a ring of the last {@value #SIZE} samples.
+ * Recording is lock-free; the percentile is recomputed by the recording thread every
+ * {@value #RECOMPUTE_INTERVAL} samples, so readers only see a volatile field.
+ */
+final class LatencyPercentile {
+
+    private static final int SIZE = 1024;
+    private static final int RECOMPUTE_INTERVAL = 256;
+
+    private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+    private final AtomicLong count = new AtomicLong();
+    private final double quantile;
+    private final long minNanos;
+    private volatile long valueNanos;
+
+    LatencyPercentile(double percentile, long initialNanos, long minNanos) {
+        this.quantile = Math.max(0, Math.min(100, percentile)) / 100;
+        this.minNanos = minNanos;
+        this.valueNanos = Math.max(minNanos, initialNanos);
+    }
+
+    void record(long nanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n & (SIZE - 1)), nanos);
+        if ((n + 1) % RECOMPUTE_INTERVAL == 0) {
+            recompute((int) Math.min(n + 1, SIZE));
+        }
+    }
+
+    long getNanos() {
+        return valueNanos;
+    }
+
+    private void recompute(int filled) {
+        long[] sorted = new long[filled];
+        for (int i = 0; i < filled; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = Math.max(0, (int) Math.ceil(quantile * filled) - 1);
+        valueNanos = Math.max(minNanos, sorted[index]);
+    }
+}
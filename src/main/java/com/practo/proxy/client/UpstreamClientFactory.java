@@ -0,0 +1,141 @@
+package com.practo.proxy.client;
+
+import com.practo.commons.security.util.SignatureRestTemplateFactory;
+import com.practo.proxy.config.ClientProperties;
+import com.practo.proxy.config.HedgingProperties;
+import com.practo.proxy.config.ServiceConfig;
+import com.practo.proxy.metrics.ProxyMetrics;
+import com.practo.proxy.metrics.UpstreamPhaseListener;
+import com.practo.proxy.resilience.UpstreamGuard;
+import com.practo.proxy.signing.TimedSigningInterceptor;
+import com.practo.proxy.util.PassThroughResponseErrorHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.OkHttp3ClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds one pooled OkHttp client per upstream service from the {@code services.clients.*} settings,
+ * hedging its reads when {@code services.hedging.*} enables it, and publishes its connection pool metrics.
+ */
+@Component
+public class UpstreamClientFactory implements DisposableBean {
+
+    @Autowired
+    private ServiceConfig serviceConfig;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SignatureRestTemplateFactory signatureRestTemplateFactory;
+
+    @Autowired
+    private ProxyMetrics proxyMetrics;
+
+    @Autowired
+    private UpstreamGuard upstreamGuard;
+
+    private final Map<String, OkHttpClient> clients = new ConcurrentHashMap<>();
+    private final ExecutorService hedgingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Gets the pooled HTTP client of a service, creating it on first use.
+     *
+     * @param service the service name
+     * @return the HTTP client of the service
+     */
+    public OkHttpClient getClient(String service) {
+        return clients.computeIfAbsent(service, this::createClient);
+    }
+
+    /**
+     * Creates a request factory backed by the pooled HTTP client of a service.
+     *
+     * @param service the service name
+     * @return the request factory for the service
+     */
+    public ClientHttpRequestFactory requestFactory(String service) {
+        return new OkHttp3ClientHttpRequestFactory(getClient(service));
+    }
+
+    /**
+     * Creates a signing RestTemplate for a service that runs on its pooled HTTP client
+     * and passes upstream error statuses through unchanged. The time spent signing each
+     * call is published as {@code proxy.upstream.signing}.
+     *
+     * @param service the service name
+     * @param host the base URL of the service
+     * @return the configured RestTemplate
+     */
+    public RestTemplate createRestTemplate(String service, String host) {
+        RestTemplate restTemplate = signatureRestTemplateFactory.create(host);
+        restTemplate.setRequestFactory(requestFactory(service));
+        Timer signing = Timer.builder("proxy.upstream.signing")
+                .tag("service", service)
+                .register(meterRegistry);
+        restTemplate.setInterceptors(TimedSigningInterceptor.wrap(restTemplate.getInterceptors(), signing));
+        restTemplate.setErrorHandler(new PassThroughResponseErrorHandler());
+        return restTemplate;
+    }
+
+    private OkHttpClient createClient(String service) {
+        ClientProperties properties = serviceConfig.getClient(service);
+        ConnectionPool pool = new ConnectionPool(properties.getMaxIdleConnections(),
+                properties.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+        new OkHttpConnectionPoolMetrics(pool, "okhttp.pool", Tags.of("service", service))
+                .bindTo(meterRegistry);
+
+        OkHttpClient client = new OkHttpClient.Builder()
+                .connectionPool(pool)
+                .connectTimeout(properties.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .protocols(properties.isHttp2()
+                        ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : Collections.singletonList(Protocol.HTTP_1_1))
+                // Retries belong to UpstreamGuard, which replays only safe methods within the retry budget
+                .retryOnConnectionFailure(false)
+                .eventListenerFactory(UpstreamPhaseListener.factory(proxyMetrics, service))
+                .build();
+
+        HedgingProperties hedging = serviceConfig.getHedging(service);
+        if (!hedging.isEnabled()) {
+            return client;
+        }
+        // Raced calls go through the client without the hedging interceptor, sharing its pool.
+        OkHttpClient.Builder hedged = client.newBuilder();
+        hedged.interceptors().add(0, new HedgingInterceptor(service, hedging, client, upstreamGuard, hedgingExecutor,
+                meterRegistry));
+        return hedged.build();
+    }
+
+    /**
+     * Closes idle pooled connections and stops the client dispatchers on shutdown.
+     */
+    @Override
+    public void destroy() {
+        for (OkHttpClient client : clients.values()) {
+            client.connectionPool().evictAll();
+            client.dispatcher().executorService().shutdown();
+        }
+        hedgingExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,217 @@
+package com.practo.proxy.compression;
+
+import com.practo.proxy.config.CompressionConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Negotiates content encoding between clients and upstreams. Compressed upstream bodies are passed
+ * through as they are, and uncompressed bodies above a threshold are gzip encoded while they are
+ * copied to the client. Bodies are never decoded by the proxy.
+ */
+@Component
+public class ResponseCompressor {
+
+    private static final String GZIP = "gzip";
+    private static final String BROTLI = "br";
+    private static final String IDENTITY = "identity";
+    private static final int ACCEPTS_GZIP = 1;
+    private static final int ACCEPTS_BROTLI = 2;
+    private static final String[] UPSTREAM_ENCODINGS = {IDENTITY, GZIP, BROTLI, "gzip, br"};
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CompressionConfig config;
+    private final List<MediaType> compressibleTypes = new ArrayList<>();
+    private final Counter compressed;
+    private final Counter passedThrough;
+
+    public ResponseCompressor(CompressionConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        for (String mimeType : config.getMimeTypes()) {
+            compressibleTypes.add(MediaType.parseMediaType(mimeType));
+        }
+        this.compressed = Counter.builder("proxy.compression.responses")
+                .tag("mode", "gzip")
+                .register(meterRegistry);
+        this.passedThrough = Counter.builder("proxy.compression.responses")
+                .tag("mode", "passthrough")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Chooses the {@code Accept-Encoding} sent upstream: the encodings the proxy can pass through
+     * that the client accepts, or {@code identity}, which also stops the HTTP client from
+     * transparently requesting and decoding gzip.
+     *
+     * @param request the client request
+     * @return the upstream {@code Accept-Encoding} value
+     */
+    public static String upstreamAcceptEncoding(HttpServletRequest request) {
+        return UPSTREAM_ENCODINGS[acceptedEncodings(request)];
+    }
+
+    /**
+     * Prepares the client response body for an upstream reply whose head has been copied. Sets the
+     * {@code Content-Encoding}, {@code Vary} and {@code Content-Length} headers and returns the
+     * stream the upstream body must be written to.
+     *
+     * @param request the client request
+     * @param upstreamHeaders the upstream response headers
+     * @param status the upstream status
+     * @param contentLength the length of the upstream body, or -1 if unknown
+     * @param response the client response
+     * @return the stream to copy the upstream body into; pass it to {@link #finish(OutputStream)} afterwards
+     * @throws IOException if the client response stream cannot be opened
+     */
+    public OutputStream bodyStream(HttpServletRequest request, HttpHeaders upstreamHeaders, int status,
+                                   long contentLength, HttpServletResponse response) throws IOException {
+        String upstreamEncoding = upstreamHeaders.getFirst(HttpHeaders.CONTENT_ENCODING);
+        if (upstreamEncoding != null && !IDENTITY.equalsIgnoreCase(upstreamEncoding)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, upstreamEncoding);
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            setContentLength(response, status, contentLength);
+            passedThrough.increment();
+            return response.getOutputStream();
+        }
+        if (shouldCompress(request, upstreamHeaders, status, contentLength)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            // The gzip bytes differ from the upstream's: its strong ETag and byte ranges no longer apply.
+            String etag = upstreamHeaders.getETag();
+            if (etag != null && !etag.startsWith("W/")) {
+                response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+            }
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+            compressed.increment();
+            return new GzipBodyStream(response.getOutputStream(), config.getLevel());
+        }
+        setContentLength(response, status, contentLength);
+        return response.getOutputStream();
+    }
+
+    /**
+     * Completes a body stream returned by {@link #bodyStream}, writing the gzip trailer if the body
+     * was compressed. The client stream itself is left open.
+     *
+     * @param body the body stream
+     * @throws IOException if the trailer cannot be written
+     */
+    public static void finish(OutputStream body) throws IOException {
+        if (body instanceof GzipBodyStream gzip) {
+            gzip.finish();
+        }
+    }
+
+    private boolean shouldCompress(HttpServletRequest request, HttpHeaders upstreamHeaders, int status,
+                                   long contentLength) {
+        if (!config.isEnabled() || status < 200 || status == 204 || status == 206 || status == 304
+                || HttpMethod.HEAD.matches(request.getMethod())) {
+            return false;
+        }
+        if (contentLength >= 0 && contentLength < config.getMinBytes()) {
+            return false;
+        }
+        if ((acceptedEncodings(request) & ACCEPTS_GZIP) == 0) {
+            return false;
+        }
+        MediaType contentType = upstreamHeaders.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        for (MediaType compressible : compressibleTypes) {
+            if (compressible.includes(contentType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void setContentLength(HttpServletResponse response, int status, long contentLength) {
+        // A 304 or 204 has no body; an upstream Content-Length there describes the selected representation.
+        if (contentLength >= 0 && status != 304 && status != 204) {
+            response.setContentLengthLong(contentLength);
+        }
+    }
+
+    private static int acceptedEncodings(HttpServletRequest request) {
+        int accepted = 0;
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while (headers != null && headers.hasMoreElements()) {
+            String header = headers.nextElement();
+            int start = 0;
+            while (start < header.length()) {
+                int end = header.indexOf(',', start);
+                if (end < 0) {
+                    end = header.length();
+                }
+                accepted |= codingFlag(header, start, end);
+                start = end + 1;
+            }
+        }
+        return accepted;
+    }
+
+    private static int codingFlag(String header, int start, int end) {
+        int paramStart = header.indexOf(';', start);
+        int nameEnd = paramStart >= 0 && paramStart < end ? paramStart : end;
+        String coding = header.substring(start, nameEnd).trim();
+        if (nameEnd < end && isZeroQuality(header.substring(nameEnd + 1, end))) {
+            return 0;
+        }
+        if (coding.equalsIgnoreCase(GZIP) || coding.equals("*")) {
+            return ACCEPTS_GZIP;
+        }
+        if (coding.equalsIgnoreCase(BROTLI)) {
+            return ACCEPTS_BROTLI;
+        }
+        return 0;
+    }
+
+    private static boolean isZeroQuality(String params) {
+        for (String param : params.split(";")) {
+            String trimmed = param.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2).trim()) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gzip stream over the client response that releases its native deflater when finished,
+     * without closing the servlet stream.
+     */
+    private static final class GzipBodyStream extends GZIPOutputStream {
+
+        GzipBodyStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            try {
+                super.finish();
+            } finally {
+                def.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.practo.proxy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "proxy.access-log")
+public class AccessLogConfig {
+    private boolean enabled = true;
+    private String file = "logs/proxy-access.log";
+    private long maxFileBytes = 100L * 1024 * 1024;
+    private int maxFiles = 10;
+    private int capacity = 65536;
+    private int batchSize = 4096;
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * Checks whether proxied calls are written to the access log.
+     *
+     * @return true if the access log is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether proxied calls are written to the access log.
+     *
+     * @param enabled true to enable the access log
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the path of the active access log file; rolled files get a numeric suffix.
+     *
+     * @return the access log file path
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * Sets the path of the active access log file.
+     *
+     * @param file the access log file path to set
+     */
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the size at which the access log file is rolled.
+     *
+     * @return the maximum file size in bytes
+     */
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    /**
+     * Sets the size at which the access log file is rolled.
+     *
+     * @param maxFileBytes the maximum file size in bytes to set
+     */
+    public void setMaxFileBytes(long maxFileBytes) {
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    /**
+     * Gets the number of rolled files kept besides the active one.
+     *
+     * @return the number of rolled files
+     */
+    public int getMaxFiles() {
+        return maxFiles;
+    }
+
+    /**
+     * Sets the number of rolled files kept besides the active one.
+     *
+     * @param maxFiles the number of rolled files to set
+     */
+    public void setMaxFiles(int maxFiles) {
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Gets the number of records the ring buffer holds; records beyond it are dropped.
+     *
+     * @return the ring buffer capacity, rounded up to a power of two
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the number of records the ring buffer holds.
+     *
+     * @param capacity the ring buffer capacity to set
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the largest number of records written in one batch.
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the largest number of records written in one batch.
+     *
+     * @param batchSize the batch size to set
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Gets how long the writer sleeps when the ring buffer is empty.
+     *
+     * @return the flush interval
+     */
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Sets how long the writer sleeps when the ring buffer is empty.
+     *
+     * @param flushInterval the flush interval to set
+     */
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+}
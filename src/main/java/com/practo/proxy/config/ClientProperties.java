@@ -0,0 +1,104 @@
+package com.practo.proxy.config;
+
+import java.time.Duration;
+
+/**
+ * Connection pool and timeout settings of the HTTP client used for one upstream service.
+ */
+public class ClientProperties {
+    private int maxIdleConnections = 20;
+    private Duration keepAlive = Duration.ofMinutes(5);
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(30);
+    private boolean http2 = true;
+
+    /**
+     * Gets the number of idle connections kept in the pool.
+     *
+     * @return the maximum number of idle connections
+     */
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    /**
+     * Sets the number of idle connections kept in the pool.
+     *
+     * @param maxIdleConnections the maximum number of idle connections to set
+     */
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    /**
+     * Gets how long an idle connection is kept before it is evicted.
+     *
+     * @return the keep-alive duration
+     */
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Sets how long an idle connection is kept before it is evicted.
+     *
+     * @param keepAlive the keep-alive duration to set
+     */
+    public void setKeepAlive(Duration keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * Gets the connect timeout.
+     *
+     * @return the connect timeout
+     */
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Sets the connect timeout.
+     *
+     * @param connectTimeout the connect timeout to set
+     */
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Gets the read timeout.
+     *
+     * @return the read timeout
+     */
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Sets the read timeout.
+     *
+     * @param readTimeout the read timeout to set
+     */
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Checks whether HTTP/2 is negotiated with the upstream.
+     *
+     * @return true if HTTP/2 is enabled
+     */
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    /**
+     * Sets whether HTTP/2 is negotiated with the upstream.
+     *
+     * @param http2 true to enable HTTP/2
+     */
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+}
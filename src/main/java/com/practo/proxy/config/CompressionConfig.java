@@ -0,0 +1,91 @@
+package com.practo.proxy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "proxy.compression")
+public class CompressionConfig {
+    private boolean enabled = true;
+    private int minBytes = 2048;
+    private int level = 5;
+    private List<String> mimeTypes = new ArrayList<>(Arrays.asList(
+            "text/*", "application/json", "application/*+json", "application/xml", "application/*+xml",
+            "application/javascript"));
+
+    /**
+     * Checks whether uncompressed upstream bodies are gzip encoded for clients that accept it.
+     *
+     * @return true if on-the-fly compression is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether uncompressed upstream bodies are gzip encoded for clients that accept it.
+     *
+     * @param enabled true to enable on-the-fly compression
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the smallest body that is compressed; bodies of unknown length are always compressed.
+     *
+     * @return the compression threshold in bytes
+     */
+    public int getMinBytes() {
+        return minBytes;
+    }
+
+    /**
+     * Sets the smallest body that is compressed.
+     *
+     * @param minBytes the compression threshold in bytes to set
+     */
+    public void setMinBytes(int minBytes) {
+        this.minBytes = minBytes;
+    }
+
+    /**
+     * Gets the deflate level used for on-the-fly compression.
+     *
+     * @return the compression level, 1 (fastest) to 9 (smallest)
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the deflate level used for on-the-fly compression.
+     *
+     * @param level the compression level to set, 1 (fastest) to 9 (smallest)
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Gets the content types that are worth compressing.
+     *
+     * @return the compressible media types, wildcards allowed
+     */
+    public List<String> getMimeTypes() {
+        return mimeTypes;
+    }
+
+    /**
+     * Sets the content types that are worth compressing.
+     *
+     * @param mimeTypes the compressible media types to set, wildcards allowed
+     */
+    public void setMimeTypes(List<String> mimeTypes) {
+        this.mimeTypes = mimeTypes;
+    }
+}
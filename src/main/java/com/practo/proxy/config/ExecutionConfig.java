@@ -0,0 +1,40 @@
+package com.practo.proxy.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual-thread execution mode, enabled with {@code proxy.execution.mode=virtual}.
+ * A request blocked on an upstream call then parks a virtual thread instead of a Tomcat worker.
+ */
+@Configuration
+@ConditionalOnProperty(name = "proxy.execution.mode", havingValue = "virtual")
+public class ExecutionConfig {
+
+    /**
+     * Runs every Tomcat request on its own virtual thread.
+     *
+     * @return the protocol handler customizer installing a virtual-thread executor
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Runs asynchronous MVC and {@code @Async} work on virtual threads as well.
+     *
+     * @return the application task executor
+     */
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
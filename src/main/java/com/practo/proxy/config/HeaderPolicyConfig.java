@@ -0,0 +1,174 @@
+package com.practo.proxy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "proxy.headers")
+public class HeaderPolicyConfig {
+    private Policy defaults = new Policy();
+    private Map<String, Policy> services = new HashMap<>();
+
+    /**
+     * Gets the header policy of services without an own entry.
+     *
+     * @return the default policy
+     */
+    public Policy getDefaults() {
+        return defaults;
+    }
+
+    /**
+     * Sets the header policy of services without an own entry.
+     *
+     * @param defaults the default policy to set
+     */
+    public void setDefaults(Policy defaults) {
+        this.defaults = defaults;
+    }
+
+    /**
+     * Gets the per-service header policies.
+     *
+     * @return the map of service policies
+     */
+    public Map<String, Policy> getServices() {
+        return services;
+    }
+
+    /**
+     * Sets the per-service header policies.
+     *
+     * @param services the map of service policies to set
+     */
+    public void setServices(Map<String, Policy> services) {
+        this.services = services;
+    }
+
+    /**
+     * Gets the header policy of a service, falling back to the defaults when none is configured.
+     *
+     * @param service the service name
+     * @return the policy of the service
+     */
+    public Policy getPolicy(String service) {
+        Policy policy = services.get(service);
+        return policy != null ? policy : defaults;
+    }
+
+    /**
+     * Headers forwarded between client and upstream. Names are case-insensitive and may end in
+     * {@code *} to match a prefix; denied names win over allowed ones.
+     */
+    public static class Policy {
+        private List<String> request = new ArrayList<>(Arrays.asList(
+                "Accept", "Accept-Language", "If-Match", "If-None-Match", "If-Modified-Since",
+                "If-Unmodified-Since", "If-Range", "Range", "X-Request-Id", "X-Correlation-Id",
+                "traceparent", "tracestate", "b3", "X-B3-*"));
+        private List<String> response = new ArrayList<>(Arrays.asList(
+                "Cache-Control", "ETag", "Last-Modified", "Expires", "Age", "Vary", "Accept-Ranges",
+                "Content-Range", "Content-Language", "Content-Disposition", "Location", "Retry-After",
+                "X-Request-Id", "X-Correlation-Id", "traceparent", "tracestate"));
+        private List<String> deny = new ArrayList<>(Arrays.asList("Authorization", "Cookie", "Set-Cookie"));
+        private List<String> correlation = new ArrayList<>(Arrays.asList(
+                "X-Request-Id", "X-Correlation-Id", "traceparent", "tracestate", "b3", "X-B3-*"));
+        private boolean forwarded = true;
+
+        /**
+         * Gets the client headers forwarded upstream.
+         *
+         * @return the allowed request header names
+         */
+        public List<String> getRequest() {
+            return request;
+        }
+
+        /**
+         * Sets the client headers forwarded upstream.
+         *
+         * @param request the allowed request header names to set
+         */
+        public void setRequest(List<String> request) {
+            this.request = request;
+        }
+
+        /**
+         * Gets the upstream headers returned to the client.
+         *
+         * @return the allowed response header names
+         */
+        public List<String> getResponse() {
+            return response;
+        }
+
+        /**
+         * Sets the upstream headers returned to the client.
+         *
+         * @param response the allowed response header names to set
+         */
+        public void setResponse(List<String> response) {
+            this.response = response;
+        }
+
+        /**
+         * Gets the headers never forwarded in either direction.
+         *
+         * @return the denied header names
+         */
+        public List<String> getDeny() {
+            return deny;
+        }
+
+        /**
+         * Sets the headers never forwarded in either direction.
+         *
+         * @param deny the denied header names to set
+         */
+        public void setDeny(List<String> deny) {
+            this.deny = deny;
+        }
+
+        /**
+         * Gets the per-request headers, forwarded on calls made for one client but left out of
+         * cached and coalesced calls shared between clients.
+         *
+         * @return the correlation header names
+         */
+        public List<String> getCorrelation() {
+            return correlation;
+        }
+
+        /**
+         * Sets the per-request headers left out of calls shared between clients.
+         *
+         * @param correlation the correlation header names to set
+         */
+        public void setCorrelation(List<String> correlation) {
+            this.correlation = correlation;
+        }
+
+        /**
+         * Checks whether {@code X-Forwarded-For}, {@code -Proto} and {@code -Host} are added upstream.
+         *
+         * @return true if forwarding headers are injected
+         */
+        public boolean isForwarded() {
+            return forwarded;
+        }
+
+        /**
+         * Sets whether {@code X-Forwarded-For}, {@code -Proto} and {@code -Host} are added upstream.
+         *
+         * @param forwarded true to inject forwarding headers
+         */
+        public void setForwarded(boolean forwarded) {
+            this.forwarded = forwarded;
+        }
+    }
+}
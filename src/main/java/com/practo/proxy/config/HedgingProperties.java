@@ -0,0 +1,86 @@
+package com.practo.proxy.config;
+
+import java.time.Duration;
+
+/**
+ * Hedging settings of one upstream service: when a GET or HEAD has not been answered within a
+ * latency percentile of the service, a second identical request is sent and the first reply wins.
+ */
+public class HedgingProperties {
+    private boolean enabled = false;
+    private double percentile = 95;
+    private Duration initialDelay = Duration.ofMillis(100);
+    private Duration minDelay = Duration.ofMillis(5);
+
+    /**
+     * Tells whether GET and HEAD requests to the service are hedged.
+     *
+     * @return true if hedging is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether GET and HEAD requests to the service are hedged.
+     *
+     * @param enabled true to enable hedging
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the percentile of recent response times after which a hedge is sent.
+     *
+     * @return the hedge percentile, between 0 and 100
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * Sets the percentile of recent response times after which a hedge is sent.
+     *
+     * @param percentile the hedge percentile to set, between 0 and 100
+     */
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    /**
+     * Gets the hedge delay used until enough response times have been observed.
+     *
+     * @return the initial hedge delay
+     */
+    public Duration getInitialDelay() {
+        return initialDelay;
+    }
+
+    /**
+     * Sets the hedge delay used until enough response times have been observed.
+     *
+     * @param initialDelay the initial hedge delay to set
+     */
+    public void setInitialDelay(Duration initialDelay) {
+        this.initialDelay = initialDelay;
+    }
+
+    /**
+     * Gets the shortest delay before a hedge is sent, however fast the service is.
+     *
+     * @return the minimum hedge delay
+     */
+    public Duration getMinDelay() {
+        return minDelay;
+    }
+
+    /**
+     * Sets the shortest delay before a hedge is sent, however fast the service is.
+     *
+     * @param minDelay the minimum hedge delay to set
+     */
+    public void setMinDelay(Duration minDelay) {
+        this.minDelay = minDelay;
+    }
+}
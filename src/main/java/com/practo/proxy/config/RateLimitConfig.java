@@ -0,0 +1,163 @@
+package com.practo.proxy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "proxy.rate-limit")
+public class RateLimitConfig {
+    private boolean enabled = false;
+    private Limit defaults = new Limit();
+    private Map<String, Limit> services = new HashMap<>();
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    private long maxKeys = 100_000;
+
+    /**
+     * Checks whether proxied requests are rate limited.
+     *
+     * @return true if rate limiting is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether proxied requests are rate limited.
+     *
+     * @param enabled true to enable rate limiting
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the limit applied per token subject to services without an own entry.
+     *
+     * @return the default limit
+     */
+    public Limit getDefaults() {
+        return defaults;
+    }
+
+    /**
+     * Sets the limit applied per token subject to services without an own entry.
+     *
+     * @param defaults the default limit to set
+     */
+    public void setDefaults(Limit defaults) {
+        this.defaults = defaults;
+    }
+
+    /**
+     * Gets the per-service limits applied per token subject.
+     *
+     * @return the map of service limits
+     */
+    public Map<String, Limit> getServices() {
+        return services;
+    }
+
+    /**
+     * Sets the per-service limits applied per token subject.
+     *
+     * @param services the map of service limits to set
+     */
+    public void setServices(Map<String, Limit> services) {
+        this.services = services;
+    }
+
+    /**
+     * Gets how long an unused bucket is kept before it is dropped.
+     *
+     * @return the idle timeout of a bucket
+     */
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets how long an unused bucket is kept before it is dropped.
+     *
+     * @param idleTimeout the idle timeout of a bucket to set
+     */
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Gets the maximum number of buckets held in memory.
+     *
+     * @return the maximum number of buckets
+     */
+    public long getMaxKeys() {
+        return maxKeys;
+    }
+
+    /**
+     * Sets the maximum number of buckets held in memory.
+     *
+     * @param maxKeys the maximum number of buckets to set
+     */
+    public void setMaxKeys(long maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Gets the limit of a service, falling back to the defaults when none is configured.
+     *
+     * @param service the service name
+     * @return the limit of the service
+     */
+    public Limit getLimit(String service) {
+        Limit limit = services.get(service);
+        return limit != null ? limit : defaults;
+    }
+
+    /**
+     * Sustained rate and burst size of one token bucket.
+     */
+    public static class Limit {
+        private double permitsPerSecond = 50;
+        private int burst = 100;
+
+        /**
+         * Gets the sustained request rate.
+         *
+         * @return the permits per second
+         */
+        public double getPermitsPerSecond() {
+            return permitsPerSecond;
+        }
+
+        /**
+         * Sets the sustained request rate.
+         *
+         * @param permitsPerSecond the permits per second to set
+         */
+        public void setPermitsPerSecond(double permitsPerSecond) {
+            this.permitsPerSecond = permitsPerSecond;
+        }
+
+        /**
+         * Gets the number of requests that may arrive back to back.
+         *
+         * @return the burst size
+         */
+        public int getBurst() {
+            return burst;
+        }
+
+        /**
+         * Sets the number of requests that may arrive back to back.
+         *
+         * @param burst the burst size to set
+         */
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+}
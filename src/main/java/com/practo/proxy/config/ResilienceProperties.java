@@ -0,0 +1,315 @@
+package com.practo.proxy.config;
+
+import java.time.Duration;
+
+/**
+ * Bulkhead, adaptive concurrency limit, circuit breaker and retry settings guarding calls to one
+ * upstream service.
+ */
+public class ResilienceProperties {
+    private int maxConcurrentCalls = 100;
+    private Duration maxWait = Duration.ZERO;
+    private boolean adaptiveLimit = true;
+    private int initialLimit = 20;
+    private int minLimit = 5;
+    private float failureRateThreshold = 50;
+    private float slowCallRateThreshold = 100;
+    private Duration slowCallDuration = Duration.ofSeconds(5);
+    private int slidingWindowSize = 50;
+    private int minimumNumberOfCalls = 20;
+    private Duration waitInOpenState = Duration.ofSeconds(10);
+    private int permittedCallsInHalfOpenState = 5;
+    private int maxRetries = 2;
+    private double retryBudgetRatio = 0.1;
+    private int minRetriesPerSecond = 5;
+    private Duration retryBackoff = Duration.ofMillis(50);
+
+    /**
+     * Gets the maximum number of concurrent calls admitted by the bulkhead.
+     *
+     * @return the bulkhead size
+     */
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * Sets the maximum number of concurrent calls admitted by the bulkhead.
+     *
+     * @param maxConcurrentCalls the bulkhead size to set
+     */
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    /**
+     * Gets how long a call waits for a free bulkhead slot before it is rejected.
+     *
+     * @return the maximum bulkhead wait
+     */
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    /**
+     * Sets how long a call waits for a free bulkhead slot before it is rejected.
+     *
+     * @param maxWait the maximum bulkhead wait to set
+     */
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Tells whether in-flight calls are capped by a limit that adapts to upstream latency,
+     * below the bulkhead size.
+     *
+     * @return true if the adaptive limit is enabled
+     */
+    public boolean isAdaptiveLimit() {
+        return adaptiveLimit;
+    }
+
+    /**
+     * Sets whether in-flight calls are capped by a limit that adapts to upstream latency.
+     *
+     * @param adaptiveLimit true to enable the adaptive limit
+     */
+    public void setAdaptiveLimit(boolean adaptiveLimit) {
+        this.adaptiveLimit = adaptiveLimit;
+    }
+
+    /**
+     * Gets the adaptive limit a service starts with.
+     *
+     * @return the initial limit
+     */
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    /**
+     * Sets the adaptive limit a service starts with.
+     *
+     * @param initialLimit the initial limit to set
+     */
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    /**
+     * Gets the floor of the adaptive limit.
+     *
+     * @return the minimum limit
+     */
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * Sets the floor of the adaptive limit.
+     *
+     * @param minLimit the minimum limit to set
+     */
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    /**
+     * Gets the failure percentage that opens the circuit.
+     *
+     * @return the failure rate threshold
+     */
+    public float getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * Sets the failure percentage that opens the circuit.
+     *
+     * @param failureRateThreshold the failure rate threshold to set
+     */
+    public void setFailureRateThreshold(float failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    /**
+     * Gets the slow call percentage that opens the circuit.
+     *
+     * @return the slow call rate threshold
+     */
+    public float getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * Sets the slow call percentage that opens the circuit.
+     *
+     * @param slowCallRateThreshold the slow call rate threshold to set
+     */
+    public void setSlowCallRateThreshold(float slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    /**
+     * Gets the duration above which a call counts as slow.
+     *
+     * @return the slow call duration
+     */
+    public Duration getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    /**
+     * Sets the duration above which a call counts as slow.
+     *
+     * @param slowCallDuration the slow call duration to set
+     */
+    public void setSlowCallDuration(Duration slowCallDuration) {
+        this.slowCallDuration = slowCallDuration;
+    }
+
+    /**
+     * Gets the number of recent calls the failure rate is computed over.
+     *
+     * @return the sliding window size
+     */
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    /**
+     * Sets the number of recent calls the failure rate is computed over.
+     *
+     * @param slidingWindowSize the sliding window size to set
+     */
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    /**
+     * Gets the number of calls needed before the failure rate is evaluated.
+     *
+     * @return the minimum number of calls
+     */
+    public int getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    /**
+     * Sets the number of calls needed before the failure rate is evaluated.
+     *
+     * @param minimumNumberOfCalls the minimum number of calls to set
+     */
+    public void setMinimumNumberOfCalls(int minimumNumberOfCalls) {
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+    }
+
+    /**
+     * Gets how long the circuit stays open before probing in half-open state.
+     *
+     * @return the open state duration
+     */
+    public Duration getWaitInOpenState() {
+        return waitInOpenState;
+    }
+
+    /**
+     * Sets how long the circuit stays open before probing in half-open state.
+     *
+     * @param waitInOpenState the open state duration to set
+     */
+    public void setWaitInOpenState(Duration waitInOpenState) {
+        this.waitInOpenState = waitInOpenState;
+    }
+
+    /**
+     * Gets the number of probe calls admitted in half-open state.
+     *
+     * @return the number of half-open probe calls
+     */
+    public int getPermittedCallsInHalfOpenState() {
+        return permittedCallsInHalfOpenState;
+    }
+
+    /**
+     * Sets the number of probe calls admitted in half-open state.
+     *
+     * @param permittedCallsInHalfOpenState the number of half-open probe calls to set
+     */
+    public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+    }
+
+    /**
+     * Gets the maximum number of retries of a single idempotent call.
+     *
+     * @return the maximum retries per call
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Sets the maximum number of retries of a single idempotent call.
+     *
+     * @param maxRetries the maximum retries per call to set
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Gets the retries allowed per call, as a fraction of all calls.
+     *
+     * @return the retry budget ratio
+     */
+    public double getRetryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    /**
+     * Sets the retries allowed per call, as a fraction of all calls.
+     *
+     * @param retryBudgetRatio the retry budget ratio to set
+     */
+    public void setRetryBudgetRatio(double retryBudgetRatio) {
+        this.retryBudgetRatio = retryBudgetRatio;
+    }
+
+    /**
+     * Gets the retries always allowed per second, regardless of traffic.
+     *
+     * @return the minimum retries per second
+     */
+    public int getMinRetriesPerSecond() {
+        return minRetriesPerSecond;
+    }
+
+    /**
+     * Sets the retries always allowed per second, regardless of traffic.
+     *
+     * @param minRetriesPerSecond the minimum retries per second to set
+     */
+    public void setMinRetriesPerSecond(int minRetriesPerSecond) {
+        this.minRetriesPerSecond = minRetriesPerSecond;
+    }
+
+    /**
+     * Gets the pause before a retry.
+     *
+     * @return the retry backoff
+     */
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    /**
+     * Sets the pause before a retry.
+     *
+     * @param retryBackoff the retry backoff to set
+     */
+    public void setRetryBackoff(Duration retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+}
@@ -0,0 +1,87 @@
+package com.practo.proxy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "proxy.cache")
+public class ResponseCacheConfig {
+    private boolean enabled = false;
+    private long maxBytes = 64L * 1024 * 1024;
+    private int maxEntryBytes = 1024 * 1024;
+    private Duration staleRetention = Duration.ofMinutes(10);
+
+    /**
+     * Checks whether GET responses are cached.
+     *
+     * @return true if the response cache is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether GET responses are cached.
+     *
+     * @param enabled true to enable the response cache
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the total size of all cached bodies.
+     *
+     * @return the cache capacity in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the total size of all cached bodies.
+     *
+     * @param maxBytes the cache capacity in bytes to set
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the largest body that is cached; larger responses are streamed through.
+     *
+     * @return the maximum entry size in bytes
+     */
+    public int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * Sets the largest body that is cached.
+     *
+     * @param maxEntryBytes the maximum entry size in bytes to set
+     */
+    public void setMaxEntryBytes(int maxEntryBytes) {
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * Gets how long a stale entry with an ETag or Last-Modified validator is kept for revalidation.
+     *
+     * @return the stale retention
+     */
+    public Duration getStaleRetention() {
+        return staleRetention;
+    }
+
+    /**
+     * Sets how long a stale entry with a validator is kept for revalidation.
+     *
+     * @param staleRetention the stale retention to set
+     */
+    public void setStaleRetention(Duration staleRetention) {
+        this.staleRetention = staleRetention;
+    }
+}
@@ -1,9 +1,6 @@
 package com.practo.proxy.config;
 
-import com.practo.commons.security.config.SecureProperties;
-import com.practo.commons.security.config.SecureProperties.ServiceCredential;
-import com.practo.commons.security.util.SignatureRestTemplateFactory;
-import com.practo.commons.security.util.SignatureHeadersGenerator;
+import com.practo.proxy.ratelimit.RateLimitFilter;
 import com.practo.proxy.security.JwtAuthenticationFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -18,20 +15,16 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
-import org.springframework.web.client.RestTemplate;
-
-import java.util.HashMap;
-import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     @Autowired
-    private ServiceConfig serviceConfig;
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
 
     @Autowired
-    private JwtAuthenticationFilter jwtAuthenticationFilter;
+    private RateLimitFilter rateLimitFilter;
 
     @Autowired
     private UserDetailsService userDetailsService;
@@ -63,91 +56,6 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
             .sessionCreationPolicy(SessionCreationPolicy.STATELESS);
 
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
     }
-
-    /**
-     * Creates and configures secure properties for service authentication.
-     *
-     * @return the configured secure properties
-     */
-    @Bean
-    public SecureProperties secureProperties() {
-        SecureProperties properties = new SecureProperties();
-        properties.setDefaultClientName("proxy-service");
-        
-        Map<String, ServiceCredential> credentials = new HashMap<>();
-        
-        ServiceCredential titanCreds = new ServiceCredential();
-        titanCreds.setSecret(serviceConfig.getKeys().get("titan"));
-        credentials.put("titan", titanCreds);
-        
-        ServiceCredential bookCreds = new ServiceCredential();
-        bookCreds.setSecret(serviceConfig.getKeys().get("book"));
-        credentials.put("book", bookCreds);
-        
-        properties.setKeys(credentials);
-        return properties;
-    }
-
-    /**
-     * Creates a RestTemplate for Titan service with signature authentication.
-     *
-     * @param restTemplateFactory the factory to create the RestTemplate
-     * @return the configured RestTemplate
-     */
-    @Bean
-    public RestTemplate titanRestTemplate(SignatureRestTemplateFactory restTemplateFactory) {
-        return restTemplateFactory.create(serviceConfig.getHosts().get("titan"));
-    }
-
-    /**
-     * Creates a RestTemplate for Book service with signature authentication.
-     *
-     * @param restTemplateFactory the factory to create the RestTemplate
-     * @return the configured RestTemplate
-     */
-    @Bean
-    public RestTemplate bookRestTemplate(SignatureRestTemplateFactory restTemplateFactory) {
-        return restTemplateFactory.create(serviceConfig.getHosts().get("book"));
-    }
-
-    /**
-     * Creates a RestTemplate with signature authentication for the proxy service.
-     *
-     * @return the configured RestTemplate
-     */
-    @Bean
-    public RestTemplate signatureRestTemplate() {
-        SignatureRestTemplateFactory factory = new SignatureRestTemplateFactory();
-        SecureProperties secureProperties = new SecureProperties();
-        secureProperties.setDefaultClientName("proxy-service");
-        
-        Map<String, ServiceCredential> credentials = new HashMap<>();
-        ServiceCredential credential = new ServiceCredential();
-        credential.setSecret("your-signature-key");
-        credentials.put("proxy-service", credential);
-        secureProperties.setKeys(credentials);
-        
-        return factory.create(new SignatureHeadersGenerator("your-signature-key", secureProperties));
-    }
-
-    /**
-     * Creates another RestTemplate with signature authentication for a different service.
-     *
-     * @return the configured RestTemplate
-     */
-    @Bean
-    public RestTemplate anotherSignatureRestTemplate() {
-        SignatureRestTemplateFactory factory = new SignatureRestTemplateFactory();
-        SecureProperties secureProperties = new SecureProperties();
-        secureProperties.setDefaultClientName("another-service");
-        
-        Map<String, ServiceCredential> credentials = new HashMap<>();
-        ServiceCredential credential = new ServiceCredential();
-        credential.setSecret("another-signature-key");
-        credentials.put("another-service", credential);
-        secureProperties.setKeys(credentials);
-        
-        return factory.create(new SignatureHeadersGenerator("another-signature-key", secureProperties));
-    }
-} 
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package com.practo.proxy.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
@@ -10,6 +11,9 @@ import java.util.Map;
 public class ServiceConfig {
     private Map<String, String> hosts;
     private Map<String, String> keys;
+    private Map<String, ClientProperties> clients = new HashMap<>();
+    private Map<String, ResilienceProperties> resilience = new HashMap<>();
+    private Map<String, HedgingProperties> hedging = new HashMap<>();
 
     /**
      * Gets the map of service hosts.
@@ -46,4 +50,91 @@ public class ServiceConfig {
     public void setKeys(Map<String, String> keys) {
         this.keys = keys;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Gets the map of per-service HTTP client settings.
+     *
+     * @return the map of client settings
+     */
+    public Map<String, ClientProperties> getClients() {
+        return clients;
+    }
+
+    /**
+     * Sets the map of per-service HTTP client settings.
+     *
+     * @param clients the map of client settings to set
+     */
+    public void setClients(Map<String, ClientProperties> clients) {
+        this.clients = clients;
+    }
+
+    /**
+     * Gets the HTTP client settings of a service, falling back to the defaults when none are configured.
+     *
+     * @param service the service name
+     * @return the client settings of the service
+     */
+    public ClientProperties getClient(String service) {
+        ClientProperties client = clients.get(service);
+        return client != null ? client : new ClientProperties();
+    }
+
+    /**
+     * Gets the map of per-service bulkhead, circuit breaker and retry settings.
+     *
+     * @return the map of resilience settings
+     */
+    public Map<String, ResilienceProperties> getResilience() {
+        return resilience;
+    }
+
+    /**
+     * Sets the map of per-service bulkhead, circuit breaker and retry settings.
+     *
+     * @param resilience the map of resilience settings to set
+     */
+    public void setResilience(Map<String, ResilienceProperties> resilience) {
+        this.resilience = resilience;
+    }
+
+    /**
+     * Gets the resilience settings of a service, falling back to the defaults when none are configured.
+     *
+     * @param service the service name
+     * @return the resilience settings of the service
+     */
+    public ResilienceProperties getResilience(String service) {
+        ResilienceProperties properties = resilience.get(service);
+        return properties != null ? properties : new ResilienceProperties();
+    }
+
+    /**
+     * Gets the map of per-service request hedging settings.
+     *
+     * @return the map of hedging settings
+     */
+    public Map<String, HedgingProperties> getHedging() {
+        return hedging;
+    }
+
+    /**
+     * Sets the map of per-service request hedging settings.
+     *
+     * @param hedging the map of hedging settings to set
+     */
+    public void setHedging(Map<String, HedgingProperties> hedging) {
+        this.hedging = hedging;
+    }
+
+    /**
+     * Gets the hedging settings of a service, falling back to the defaults when none are configured.
+     *
+     * @param service the service name
+     * @return the hedging settings of the service
+     */
+    public HedgingProperties getHedging(String service) {
+        HedgingProperties properties = hedging.get(service);
+        return properties != null ? properties : new HedgingProperties();
+    }
+}
@@ -0,0 +1,40 @@
+package com.practo.proxy.config;
+
+import com.practo.commons.security.config.SecureProperties;
+import com.practo.commons.security.config.SecureProperties.ServiceCredential;
+import com.practo.proxy.signing.ServiceCredentials;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class SignatureConfig {
+
+    @Autowired
+    private ServiceCredentials serviceCredentials;
+
+    /**
+     * Creates and configures secure properties for service authentication from the shared
+     * credential registry.
+     *
+     * @return the configured secure properties
+     */
+    @Bean
+    public SecureProperties secureProperties() {
+        SecureProperties properties = new SecureProperties();
+        properties.setDefaultClientName(serviceCredentials.getClientName());
+        
+        Map<String, ServiceCredential> credentials = new HashMap<>();
+        for (Map.Entry<String, String> key : serviceCredentials.getSecrets().entrySet()) {
+            ServiceCredential credential = new ServiceCredential();
+            credential.setSecret(key.getValue());
+            credentials.put(key.getKey(), credential);
+        }
+        
+        properties.setKeys(credentials);
+        return properties;
+    }
+}
@@ -0,0 +1,106 @@
+package com.practo.proxy.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "proxy.warmup")
+public class WarmupConfig {
+    private boolean enabled = true;
+    private int connectionsPerService = 4;
+    private String path = "/";
+    private int iterations = 200;
+    private Duration timeout = Duration.ofSeconds(15);
+
+    /**
+     * Checks whether the proxy warms up before it reports ready.
+     *
+     * @return true if warmup is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether the proxy warms up before it reports ready.
+     *
+     * @param enabled true to enable warmup
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the number of concurrent calls used to open pooled connections to each service.
+     *
+     * @return the warmup calls per service
+     */
+    public int getConnectionsPerService() {
+        return connectionsPerService;
+    }
+
+    /**
+     * Sets the number of concurrent calls used to open pooled connections to each service.
+     *
+     * @param connectionsPerService the warmup calls per service to set
+     */
+    public void setConnectionsPerService(int connectionsPerService) {
+        this.connectionsPerService = connectionsPerService;
+    }
+
+    /**
+     * Gets the upstream path probed with HEAD requests to open connections.
+     *
+     * @return the probe path, relative to each service host
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Sets the upstream path probed with HEAD requests to open connections.
+     *
+     * @param path the probe path to set, relative to each service host
+     */
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Gets the number of requests sent through the local JWT and filter path.
+     *
+     * @return the warmup iterations
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Sets the number of requests sent through the local JWT and filter path.
+     *
+     * @param iterations the warmup iterations to set
+     */
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * Gets the longest time warmup may delay readiness.
+     *
+     * @return the warmup timeout
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the longest time warmup may delay readiness.
+     *
+     * @param timeout the warmup timeout to set
+     */
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
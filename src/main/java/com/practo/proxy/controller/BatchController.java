@@ -0,0 +1,90 @@
+package com.practo.proxy.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practo.proxy.lifecycle.ProxyDrain;
+import com.practo.proxy.routing.RouteTable;
+import com.practo.proxy.security.JwtAuthenticationFilter;
+import com.practo.proxy.security.VerifiedToken;
+import com.practo.proxy.service.BatchDispatcher;
+import com.practo.proxy.service.BatchRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Fans a batch of sub-requests out to the configured upstream services in a single authenticated call.
+ */
+@RestController
+@RequestMapping(RouteTable.PROXY_PATH)
+public class BatchController {
+
+    @Autowired
+    private BatchDispatcher batchDispatcher;
+
+    @Autowired
+    private ProxyDrain proxyDrain;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Runs the sub-requests of a batch in parallel and streams a {@code multipart/mixed} reply with one
+     * part per sub-request, in completion order. Each part carries the sub-request id in
+     * {@code Content-ID} and the upstream status in {@code X-Status}; sub-requests to services the
+     * token does not grant are answered with 403 without being sent. Bodies larger than
+     * {@code proxy.batch.max-body-bytes} are refused with 413 before they are parsed.
+     *
+     * @param request the client request, whose body holds the sub-requests and the optional batch deadline
+     * @param response the client response
+     * @throws IOException if the response cannot be written
+     */
+    @PostMapping(value = "/_batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void batch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        VerifiedToken token = (VerifiedToken) request.getAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTRIBUTE);
+        if (token == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        int maxBodyBytes = batchDispatcher.getMaxBodyBytes();
+        if (request.getContentLengthLong() > maxBodyBytes) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(maxBodyBytes + 1);
+        if (body.length > maxBodyBytes) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+        BatchRequest batch;
+        try {
+            batch = objectMapper.readValue(body, BatchRequest.class);
+        } catch (JsonProcessingException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed batch body");
+            return;
+        }
+        if (batch == null || batch.getRequests() == null || batch.getRequests().isEmpty()
+                || batch.getRequests().size() > batchDispatcher.getMaxRequests()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "A batch takes 1 to " + batchDispatcher.getMaxRequests() + " requests");
+            return;
+        }
+        if (!proxyDrain.tryEnter()) {
+            response.setHeader(HttpHeaders.CONNECTION, "close");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        try {
+            batchDispatcher.dispatch(batch, token, request, response);
+        } finally {
+            proxyDrain.exit();
+        }
+    }
+}
@@ -1,87 +1,110 @@
 package com.practo.proxy.controller;
 
-import com.practo.proxy.config.ServiceConfig;
-import com.practo.proxy.service.ExternalService;
+import com.practo.proxy.accesslog.AccessLog;
+import com.practo.proxy.lifecycle.ProxyDrain;
+import com.practo.proxy.metrics.ProxyMetrics;
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.routing.RouteTable;
+import com.practo.proxy.security.JwtAuthenticationFilter;
+import com.practo.proxy.security.VerifiedToken;
+import com.practo.proxy.service.ProxyDispatcher;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Map;
+import java.io.IOException;
+import java.net.URI;
 
 @RestController
-@RequestMapping("/proxy")
+@RequestMapping(RouteTable.PROXY_PATH)
 public class ProxyController {
 
     @Autowired
-    private ExternalService externalService;
+    private ProxyDispatcher proxyDispatcher;
 
     @Autowired
-    private ServiceConfig serviceConfig;
+    private RouteTable routeTable;
+
+    @Autowired
+    private ProxyMetrics proxyMetrics;
+
+    @Autowired
+    private ProxyDrain proxyDrain;
+
+    @Autowired
+    private AccessLog accessLog;
 
     /**
-     * Proxies requests to the Titan service.
+     * Proxies requests under {@code /proxy/{service}/v1/**} to the configured upstream service,
+     * provided the caller's token grants access to that service. The raw path and query are
+     * forwarded as received, so repeated parameters and the client's encoding are kept.
      *
-     * @param endpoint the endpoint to call
-     * @param queryParams the query parameters
-     * @param body the request body
      * @param method the HTTP method
-     * @return the response from the Titan service
+     * @param request the client request, whose body is streamed upstream unparsed
+     * @param response the client response, into which the upstream reply is streamed
+     * @throws IOException if the response cannot be written
      */
-    @RequestMapping(value = "/titan/v1/{endpoint}", method = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE})
-    public ResponseEntity<String> proxyTitanRequest(
-            @PathVariable String endpoint,
-            @RequestParam(required = false) Map<String, String> queryParams,
-            @RequestBody(required = false) Object body,
-            HttpMethod method) {
-        String fullEndpoint = serviceConfig.getHosts().get("titan") + endpoint;
-        if (queryParams != null && !queryParams.isEmpty()) {
-            fullEndpoint += "?" + buildQueryString(queryParams);
+    @RequestMapping(value = "/**", method = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE})
+    public void proxyRequest(
+            HttpMethod method,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        String path = RouteTable.proxyPath(request);
+        ProxyRoute route = routeTable.resolve(path);
+        if (route == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        VerifiedToken token = (VerifiedToken) request.getAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTRIBUTE);
+        if (token == null || !token.isRouteGranted(route.getIndex())) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
         }
-        return externalService.callTitanService(fullEndpoint, method, body);
-    }
 
-    /**
-     * Proxies requests to the Book service.
-     *
-     * @param endpoint the endpoint to call
-     * @param queryParams the query parameters
-     * @param body the request body
-     * @param method the HTTP method
-     * @return the response from the Book service
-     */
-    @RequestMapping(value = "/book/v1/{endpoint}", method = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE})
-    public ResponseEntity<String> proxyBookRequest(
-            @PathVariable String endpoint,
-            @RequestParam(required = false) Map<String, String> queryParams,
-            @RequestBody(required = false) Object body,
-            HttpMethod method) {
-        String fullEndpoint = serviceConfig.getHosts().get("book") + endpoint;
-        if (queryParams != null && !queryParams.isEmpty()) {
-            fullEndpoint += "?" + buildQueryString(queryParams);
+        String endpoint = route.endpointOf(path);
+        URI upstreamUri = route.uriOf(endpoint, request.getQueryString());
+        if (!proxyDrain.tryEnter()) {
+            response.setHeader(HttpHeaders.CONNECTION, "close");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        int failureStatus = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            proxyDispatcher.dispatch(route, endpoint, upstreamUri, method, request, response);
+            failed = false;
+        } catch (RuntimeException | IOException e) {
+            failureStatus = statusOf(e, response);
+            throw e;
+        } finally {
+            proxyDrain.exit();
+            long latency = System.nanoTime() - start;
+            int status = failed ? failureStatus : response.getStatus();
+            proxyMetrics.recordRequest(route.getName(), method.name(), status, latency);
+            Object bytes = request.getAttribute(AccessLog.RESPONSE_BYTES_ATTRIBUTE);
+            accessLog.record(token.getSubject(), route.getName(), method.name(), endpoint, status,
+                    bytes instanceof Long ? (Long) bytes : 0, latency);
         }
-        return externalService.callBookService(fullEndpoint, method, body);
     }
 
     /**
-     * Builds a query string from the given parameters.
-     *
-     * @param params the parameters to build the query string from
-     * @return the built query string
+     * Resolves the status a client receives for a failed proxy call: the status already sent if the
+     * upstream reply was being streamed, otherwise the {@link ResponseStatus} of the exception, e.g.
+     * 503 for a shed call, or 500.
      */
-    private String buildQueryString(Map<String, String> params) {
-        StringBuilder queryString = new StringBuilder();
-        for (Map.Entry<String, String> entry : params.entrySet()) {
-            if (queryString.length() > 0) {
-                queryString.append("&");
-            }
-            queryString.append(entry.getKey()).append("=").append(entry.getValue());
+    private static int statusOf(Exception e, HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return response.getStatus();
         }
-        return queryString.toString();
+        ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(e.getClass(), ResponseStatus.class);
+        return responseStatus != null ? responseStatus.code().value() : HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package com.practo.proxy.controller;
+
+import com.practo.proxy.service.JwtService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Issues JWT tokens in bulk for CI and load-test jobs that need many subjects at once. Only the
+ * GitHub logins listed in {@code jwt.batch.issuers} may use it, and only for the services listed
+ * in {@code jwt.batch.services}.
+ */
+@RestController
+@RequestMapping("/tokens")
+public class TokenController {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenController.class);
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Value("${jwt.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${jwt.batch.issuers:}")
+    private Set<String> issuers;
+
+    @Value("${jwt.batch.services:}")
+    private Set<String> grantableServices;
+
+    /**
+     * Generates one JWT token per requested subject, all authorized for the requested services.
+     *
+     * @param principal the authenticated user, who must be a configured issuer
+     * @param request the subjects and services to issue tokens for
+     * @return the generated tokens with their common expiry
+     */
+    @PostMapping("/batch")
+    public TokenBatchResponse generateTokens(@AuthenticationPrincipal OAuth2User principal,
+                                             @RequestBody TokenBatchRequest request) {
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        String login = principal.getAttribute("login");
+        if (login == null || !issuers.contains(login)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not allowed to issue batch tokens");
+        }
+        List<String> subjects = request.getSubjects();
+        List<String> services = request.getServices();
+        if (subjects == null || subjects.isEmpty() || services == null || services.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "subjects and services are required");
+        }
+        if (subjects.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchSize + " tokens can be issued per batch");
+        }
+        if (!grantableServices.containsAll(services)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
+                    "Batch tokens can only grant " + grantableServices);
+        }
+
+        long expiresAtMillis = System.currentTimeMillis() + jwtService.getTokenLifetimeMillis();
+        List<String> tokens = jwtService.generateTokens(subjects, services);
+        log.info("{} issued {} batch tokens for services {}", login, tokens.size(), services);
+        List<IssuedToken> issued = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            issued.add(new IssuedToken(subjects.get(i), tokens.get(i)));
+        }
+        return new TokenBatchResponse(expiresAtMillis, issued);
+    }
+
+    /**
+     * Body of a batch token request.
+     */
+    public static class TokenBatchRequest {
+
+        private List<String> subjects;
+        private List<String> services;
+
+        public List<String> getSubjects() {
+            return subjects;
+        }
+
+        public void setSubjects(List<String> subjects) {
+            this.subjects = subjects;
+        }
+
+        public List<String> getServices() {
+            return services;
+        }
+
+        public void setServices(List<String> services) {
+            this.services = services;
+        }
+    }
+
+    /**
+     * Tokens issued for a batch request.
+     */
+    public static class TokenBatchResponse {
+
+        private final long expiresAt;
+        private final List<IssuedToken> tokens;
+
+        public TokenBatchResponse(long expiresAt, List<IssuedToken> tokens) {
+            this.expiresAt = expiresAt;
+            this.tokens = tokens;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public List<IssuedToken> getTokens() {
+            return tokens;
+        }
+    }
+
+    /**
+     * A token issued to one subject.
+     */
+    public static class IssuedToken {
+
+        private final String subject;
+        private final String token;
+
+        public IssuedToken(String subject, String token) {
+            this.subject = subject;
+            this.token = token;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getToken() {
+            return token;
+        }
+    }
+}
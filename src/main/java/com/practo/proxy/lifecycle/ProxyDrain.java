@@ -0,0 +1,106 @@
+package com.practo.proxy.lifecycle;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks in-flight proxy calls and drains them on shutdown. Once draining starts, readiness turns
+ * to refusing traffic, new calls are rejected, and shutdown waits up to {@code proxy.drain.timeout}
+ * for running calls before the web server stops. Draining starts on {@link ContextClosedEvent},
+ * which the context publishes before stopping any lifecycle bean: the web server's graceful
+ * shutdown already runs in the last lifecycle phase, {@code DEFAULT_PHASE}, so no later phase
+ * would order this one ahead of it.
+ */
+@Component
+public class ProxyDrain implements ApplicationListener<ContextClosedEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(ProxyDrain.class);
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration timeout;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean draining;
+
+    public ProxyDrain(ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                      @Value("${proxy.drain.timeout:20s}") Duration timeout) {
+        this.eventPublisher = eventPublisher;
+        this.timeout = timeout;
+        Gauge.builder("proxy.in.flight", inFlight, AtomicInteger::get)
+                .description("Proxy calls currently being served")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers the start of a proxy call.
+     *
+     * @return true if the call may proceed; false while draining, in which case the call must be
+     *         rejected and {@link #exit()} must not be called
+     */
+    public boolean tryEnter() {
+        inFlight.incrementAndGet();
+        if (draining) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Registers the end of a proxy call admitted by {@link #tryEnter()}.
+     */
+    public void exit() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Gets the number of proxy calls in progress.
+     *
+     * @return the in-flight call count
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Drains in-flight proxy calls when the application context starts closing.
+     *
+     * @param event the context closed event
+     */
+    @Override
+    public void onApplicationEvent(ContextClosedEvent event) {
+        // The injected publisher is the owning context; child contexts closing must not drain it.
+        if (event.getApplicationContext() != eventPublisher || draining) {
+            return;
+        }
+        draining = true;
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        int pending = inFlight.get();
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        int remaining = inFlight.get();
+        log.info("Drained {} in-flight proxy calls in {} ms; {} still running after the {} timeout",
+                Math.max(0, pending - remaining), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                remaining, timeout);
+    }
+}
@@ -0,0 +1,178 @@
+package com.practo.proxy.lifecycle;
+
+import com.practo.proxy.client.UpstreamClientFactory;
+import com.practo.proxy.config.WarmupConfig;
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.routing.RouteTable;
+import com.practo.proxy.security.VerifiedToken;
+import com.practo.proxy.util.JwtUtil;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the proxy up before it reports ready: opens pooled connections to every upstream in
+ * {@code services.hosts}, then sends requests through the local server so that the JWT parser,
+ * security filters, route table and controller are loaded and compiled. Runs as an application
+ * runner, which completes before Spring Boot marks the application as accepting traffic.
+ * Failures are tolerated; warmup never blocks startup beyond {@code proxy.warmup.timeout}.
+ * Local warmup requests carry a subject unique to this process, so that the proxy's own metrics can
+ * tell them apart from client traffic.
+ */
+@Component
+public class UpstreamWarmup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamWarmup.class);
+
+    @Autowired
+    private WarmupConfig warmupConfig;
+
+    @Autowired
+    private RouteTable routeTable;
+
+    @Autowired
+    private UpstreamClientFactory upstreamClientFactory;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private final String warmupSubject = "proxy-warmup-" + UUID.randomUUID();
+
+    /**
+     * Checks whether a request was sent by the warmup rather than a client.
+     *
+     * @param token the verified token of the request
+     * @return true if the token was issued for warmup requests
+     */
+    public boolean isWarmup(VerifiedToken token) {
+        return warmupSubject.equals(token.getSubject());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!warmupConfig.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + warmupConfig.getTimeout().toNanos();
+        int connected = warmUpstreams(deadline);
+        int requests = warmLocalPath(deadline);
+        log.info("Warmup finished in {} ms: {} upstream probes answered, {} local requests served",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), connected, requests);
+    }
+
+    /**
+     * Sends concurrent HEAD probes to every upstream so that connections, TLS sessions and
+     * HTTP/2 streams are established in the pools the proxy will use. The probes share only the
+     * connection pool of each service client, not its interceptors or event listener, so they
+     * feed neither the upstream phase metrics nor hedging.
+     */
+    private int warmUpstreams(long deadline) {
+        List<ProxyRoute> routes = routeTable.getRoutes();
+        int probes = routes.size() * warmupConfig.getConnectionsPerService();
+        CountDownLatch done = new CountDownLatch(probes);
+        AtomicInteger answered = new AtomicInteger();
+        String path = warmupConfig.getPath().startsWith("/") ? warmupConfig.getPath().substring(1)
+                : warmupConfig.getPath();
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(Math.max(1, warmupConfig.getConnectionsPerService()));
+        for (ProxyRoute route : routes) {
+            OkHttpClient.Builder builder = upstreamClientFactory.getClient(route.getName()).newBuilder()
+                    .dispatcher(dispatcher)
+                    .eventListener(EventListener.NONE);
+            builder.interceptors().clear();
+            builder.networkInterceptors().clear();
+            OkHttpClient client = builder.build();
+            Request probe = new Request.Builder().url(route.getHost() + path).head().build();
+            for (int i = 0; i < warmupConfig.getConnectionsPerService(); i++) {
+                client.newCall(probe).enqueue(new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) {
+                        response.close();
+                        answered.incrementAndGet();
+                        done.countDown();
+                    }
+                });
+            }
+        }
+        await(done, deadline);
+        dispatcher.executorService().shutdown();
+        return answered.get();
+    }
+
+    /**
+     * Sends authenticated requests through the local server. The warmup token grants no services,
+     * so each request passes JWT verification and route resolution, is let through by the rate
+     * limiter without touching a bucket, and is then refused by the controller without reaching an
+     * upstream.
+     */
+    private int warmLocalPath(long deadline) {
+        if (!(applicationContext instanceof ServletWebServerApplicationContext webContext)
+                || webContext.getWebServer() == null || routeTable.getRoutes().isEmpty()) {
+            return 0;
+        }
+        String baseUrl = "http://localhost:" + webContext.getWebServer().getPort()
+                + webContext.getServletContext().getContextPath() + RouteTable.PROXY_PATH;
+        String authorization = "Bearer " + jwtUtil.generateToken(warmupSubject, Collections.emptyList());
+        OkHttpClient client = new OkHttpClient.Builder()
+                .callTimeout(warmupConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        int served = 0;
+        try {
+            List<ProxyRoute> routes = routeTable.getRoutes();
+            for (int i = 0; i < warmupConfig.getIterations() && System.nanoTime() < deadline; i++) {
+                ProxyRoute route = routes.get(i % routes.size());
+                Request request = new Request.Builder()
+                        .url(baseUrl + route.getPrefix() + "warmup?iteration=" + i)
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .build();
+                try (Response response = client.newCall(request).execute()) {
+                    served++;
+                } catch (IOException e) {
+                    break;
+                }
+            }
+        } finally {
+            client.connectionPool().evictAll();
+            client.dispatcher().executorService().shutdown();
+        }
+        return served;
+    }
+
+    private static void await(CountDownLatch latch, long deadline) {
+        try {
+            latch.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.practo.proxy.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latency timers of the proxy path, with percentile histograms. {@code proxy.requests} times whole
+ * proxied requests and {@code proxy.phase} times their phases: JWT verification, user lookup,
+ * request body copy, upstream connect, upstream time-to-first-byte and response copy.
+ * All tags have bounded cardinality: configured route names, a fixed set of methods and status classes.
+ */
+@Component
+public class ProxyMetrics {
+
+    public static final String PHASE_JWT_VERIFY = "jwt_verify";
+    public static final String PHASE_USER_LOOKUP = "user_lookup";
+    public static final String PHASE_REQUEST_BODY = "request_body";
+    public static final String PHASE_UPSTREAM_CONNECT = "upstream_connect";
+    public static final String PHASE_UPSTREAM_TTFB = "upstream_ttfb";
+    public static final String PHASE_RESPONSE_COPY = "response_copy";
+
+    /**
+     * Route tag of requests that did not resolve to a configured route.
+     */
+    public static final String NO_ROUTE = "none";
+
+    private static final String[] PHASES = {PHASE_JWT_VERIFY, PHASE_USER_LOOKUP, PHASE_REQUEST_BODY,
+            PHASE_UPSTREAM_CONNECT, PHASE_UPSTREAM_TTFB, PHASE_RESPONSE_COPY};
+    private static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "OTHER"};
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx", "none"};
+
+    /**
+     * Timer kinds per route: {@code proxy.requests} first, then one {@code proxy.phase} timer per phase.
+     */
+    private static final int KINDS = 1 + PHASES.length;
+
+    private final MeterRegistry meterRegistry;
+    // Per route, the timers indexed by kind, method and status class, so recording allocates nothing.
+    private final Map<String, AtomicReferenceArray<Timer>> timers = new ConcurrentHashMap<>();
+
+    public ProxyMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records the duration of one phase of a proxied request.
+     *
+     * @param phase the phase name
+     * @param route the route name, or {@link #NO_ROUTE}
+     * @param method the HTTP method
+     * @param status the HTTP status, or 0 if not known yet
+     * @param nanos the phase duration in nanoseconds
+     */
+    public void recordPhase(String phase, String route, String method, int status, long nanos) {
+        timer(1 + phaseIndex(phase), route, method, status).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the duration of a whole proxied request.
+     *
+     * @param route the route name, or {@link #NO_ROUTE}
+     * @param method the HTTP method
+     * @param status the HTTP status returned to the client
+     * @param nanos the request duration in nanoseconds
+     */
+    public void recordRequest(String route, String method, int status, long nanos) {
+        timer(0, route, method, status).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(int kind, String route, String method, int status) {
+        AtomicReferenceArray<Timer> routeTimers = timers.get(route);
+        if (routeTimers == null) {
+            routeTimers = timers.computeIfAbsent(route,
+                    r -> new AtomicReferenceArray<>(KINDS * METHODS.length * STATUS_CLASSES.length));
+        }
+        int methodIndex = methodIndex(method);
+        int statusIndex = statusIndex(status);
+        int slot = (kind * METHODS.length + methodIndex) * STATUS_CLASSES.length + statusIndex;
+        Timer timer = routeTimers.get(slot);
+        if (timer == null) {
+            // Registering is idempotent, so callers racing here all get the same timer.
+            Timer.Builder builder = Timer.builder(kind == 0 ? "proxy.requests" : "proxy.phase")
+                    .tag("route", route)
+                    .tag("method", METHODS[methodIndex])
+                    .tag("status", STATUS_CLASSES[statusIndex])
+                    .publishPercentileHistogram();
+            if (kind > 0) {
+                builder.tag("phase", PHASES[kind - 1]);
+            }
+            timer = builder.register(meterRegistry);
+            routeTimers.set(slot, timer);
+        }
+        return timer;
+    }
+
+    private static int phaseIndex(String phase) {
+        for (int i = 0; i < PHASES.length; i++) {
+            if (PHASES[i].equals(phase)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown phase " + phase);
+    }
+
+    private static int methodIndex(String method) {
+        for (int i = 0; i < METHODS.length - 1; i++) {
+            if (METHODS[i].equals(method)) {
+                return i;
+            }
+        }
+        return METHODS.length - 1;
+    }
+
+    private static int statusIndex(int status) {
+        if (status < 100 || status > 599) {
+            return STATUS_CLASSES.length - 1;
+        }
+        return status / 100 - 1;
+    }
+}
@@ -0,0 +1,64 @@
+package com.practo.proxy.metrics;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+
+/**
+ * Per-call OkHttp listener recording upstream connect time (including TLS) and time-to-first-byte.
+ */
+public class UpstreamPhaseListener extends EventListener {
+
+    private final ProxyMetrics proxyMetrics;
+    private final String route;
+    private long connectStartNanos;
+    private long requestStartNanos;
+    private long firstByteNanos;
+
+    public UpstreamPhaseListener(ProxyMetrics proxyMetrics, String route) {
+        this.proxyMetrics = proxyMetrics;
+        this.route = route;
+    }
+
+    /**
+     * Creates a factory of listeners for the calls of one route.
+     *
+     * @param proxyMetrics the metrics to record into
+     * @param route the route name
+     * @return the listener factory
+     */
+    public static EventListener.Factory factory(ProxyMetrics proxyMetrics, String route) {
+        return call -> new UpstreamPhaseListener(proxyMetrics, route);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        proxyMetrics.recordPhase(ProxyMetrics.PHASE_UPSTREAM_CONNECT, route, call.request().method(), 0,
+                System.nanoTime() - connectStartNanos);
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        requestStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        firstByteNanos = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        proxyMetrics.recordPhase(ProxyMetrics.PHASE_UPSTREAM_TTFB, route, call.request().method(), response.code(),
+                firstByteNanos - requestStartNanos);
+    }
+}
@@ -0,0 +1,78 @@
+package com.practo.proxy.ratelimit;
+
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.routing.RouteTable;
+import com.practo.proxy.security.JwtAuthenticationFilter;
+import com.practo.proxy.security.VerifiedToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private RouteTable routeTable;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    /**
+     * Limits proxied requests per token subject and target service, answering 429 with
+     * {@code Retry-After} once the caller's bucket is empty. Requests to services the token does
+     * not grant are passed on untouched, so the controller refuses them with 403 and they neither
+     * create nor drain a bucket.
+     *
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @param filterChain the filter chain
+     * @throws ServletException if a servlet error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        VerifiedToken token = (VerifiedToken) request.getAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTRIBUTE);
+        String path = RouteTable.proxyPath(request);
+        ProxyRoute route = path != null ? routeTable.resolve(path) : null;
+        if (token == null || route == null || !token.isRouteGranted(route.getIndex())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = rateLimiter.tryAcquire(token.getSubject(), route.getName());
+        if (waitNanos > 0) {
+            rejections.computeIfAbsent(route.getName(), service -> Counter.builder("proxy.ratelimit.rejected")
+                    .tag("service", service)
+                    .register(meterRegistry)).increment();
+            long retryAfterSeconds = TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1;
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value());
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !rateLimiter.isEnabled() || RouteTable.proxyPath(request) == null;
+    }
+}
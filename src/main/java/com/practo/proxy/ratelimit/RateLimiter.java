@@ -0,0 +1,54 @@
+package com.practo.proxy.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.practo.proxy.config.RateLimitConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds one {@link TokenBucket} per token subject and target service. Buckets live in a bounded
+ * cache and are dropped once idle, so memory stays bounded however many distinct callers appear.
+ */
+@Component
+public class RateLimiter {
+
+    private final RateLimitConfig config;
+    private final Cache<String, TokenBucket> buckets;
+
+    public RateLimiter(RateLimitConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(config.getMaxKeys())
+                .expireAfterAccess(config.getIdleTimeout())
+                .build();
+        Gauge.builder("proxy.ratelimit.buckets", buckets, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks whether rate limiting is enabled.
+     *
+     * @return true if requests are rate limited
+     */
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Takes a permit for a caller of a service.
+     *
+     * @param subject the token subject of the caller
+     * @param service the target service
+     * @return 0 if the request is admitted, otherwise the nanoseconds until a permit is available
+     */
+    public long tryAcquire(String subject, String service) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(subject + '\n' + service, key -> {
+            RateLimitConfig.Limit limit = config.getLimit(service);
+            return new TokenBucket(limit.getPermitsPerSecond(), limit.getBurst(), now);
+        });
+        return bucket.tryAcquire(now);
+    }
+}
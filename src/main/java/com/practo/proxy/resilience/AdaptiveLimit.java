@@ -0,0 +1,150 @@
+package com.practo.proxy.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to upstream latency, TCP Vegas style. The lowest observed round
+ * trip time is taken as the upstream's unloaded latency, and {@code limit * (1 - minRtt / rtt)}
+ * estimates how many calls are queued at the upstream. The limit grows while that queue is short
+ * and shrinks once it grows past a few calls, so it settles near what the upstream can serve
+ * without queueing. Every {@value #PROBE_WINDOWS} adjustments the limit is halved and the unloaded
+ * latency measured afresh, so that neither a lasting change in the upstream nor its own queueing
+ * skews the baseline. Failed calls back the limit off multiplicatively.
+ * Admission is lock-free; samples are folded in under a lock that is skipped when contended,
+ * since a concurrent sample carries the same signal.
+ */
+public class AdaptiveLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int PROBE_WINDOWS = 30;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile int limit;
+
+    private double estimatedLimit;
+    private long minRttNanos;
+    private long windowRttNanos;
+    private int windowConcurrent;
+    private int windowSamples;
+    private int windowsSinceProbe;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Admits a call if fewer calls than the current limit are in flight.
+     *
+     * @return true if the call may proceed, in which case it must be completed or ignored
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Completes an admitted call and feeds its round trip time into the limit.
+     *
+     * @param rttNanos the round trip time of the call
+     * @param dropped true if the call failed or was shed by the upstream, which backs the limit off
+     */
+    public void onComplete(long rttNanos, boolean dropped) {
+        int concurrent = inFlight.getAndDecrement();
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (dropped) {
+                setLimit(estimatedLimit * BACKOFF_RATIO);
+            } else {
+                onSample(Math.max(1, rttNanos), concurrent);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Completes an admitted call without using it as a sample, e.g. when it never reached the upstream.
+     */
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Gets the current concurrency limit.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the number of admitted calls in flight.
+     *
+     * @return the in-flight calls
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void onSample(long rttNanos, int concurrent) {
+        if (windowSamples == 0 || rttNanos < windowRttNanos) {
+            windowRttNanos = rttNanos;
+        }
+        windowConcurrent = Math.max(windowConcurrent, concurrent);
+        // Like TCP Vegas, adjust once per window of about one limit's worth of calls, from the
+        // lowest round trip time seen in it, rather than on every call.
+        if (++windowSamples < estimatedLimit) {
+            return;
+        }
+        long rtt = windowRttNanos;
+        int busiest = windowConcurrent;
+        windowSamples = 0;
+        windowConcurrent = 0;
+
+        if (++windowsSinceProbe >= PROBE_WINDOWS) {
+            // Drain the upstream queue so the next windows measure the unloaded latency again.
+            windowsSinceProbe = 0;
+            minRttNanos = 0;
+            setLimit(estimatedLimit / 2);
+            return;
+        }
+        if (minRttNanos == 0 || rtt < minRttNanos) {
+            minRttNanos = rtt;
+        }
+
+        double log = Math.max(1, Math.log10(estimatedLimit));
+        double queued = Math.ceil(estimatedLimit * (1 - (double) minRttNanos / rtt));
+        if (queued > 6 * log) {
+            setLimit(estimatedLimit - log);
+        } else if (busiest * 2 < estimatedLimit) {
+            // An upstream that is not kept busy says nothing about how much more it could take.
+            return;
+        } else if (queued <= log) {
+            setLimit(estimatedLimit + 6 * log);
+        } else if (queued < 3 * log) {
+            setLimit(estimatedLimit + log);
+        }
+    }
+
+    private void setLimit(double value) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, value));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,81 @@
+package com.practo.proxy.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free retry budget: every call deposits a fraction of a retry token, a small floor of tokens
+ * is refilled over time, and each retry withdraws one token. Retries therefore stay within a fixed
+ * share of the traffic, so they cannot amplify an upstream outage.
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000;
+    private static final long MIN_REFILL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final long depositPerCall;
+    private final long refillPerSecond;
+    private final long capacity;
+    private final AtomicLong balance;
+    private final AtomicLong lastRefillNanos = new AtomicLong(System.nanoTime());
+
+    public RetryBudget(double ratio, int minRetriesPerSecond) {
+        this.depositPerCall = Math.round(ratio * SCALE);
+        this.refillPerSecond = minRetriesPerSecond * SCALE;
+        this.capacity = Math.max(10, minRetriesPerSecond * 10L) * SCALE;
+        this.balance = new AtomicLong(refillPerSecond);
+    }
+
+    /**
+     * Records a call, earning it a share of a retry.
+     */
+    public void recordCall() {
+        add(depositPerCall);
+    }
+
+    /**
+     * Withdraws one retry from the budget.
+     *
+     * @return true if the retry may proceed
+     */
+    public boolean tryWithdraw() {
+        refill();
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of whole retries currently available.
+     *
+     * @return the available retries
+     */
+    public long available() {
+        return balance.get() / SCALE;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long last = lastRefillNanos.get();
+        long elapsed = now - last;
+        if (elapsed >= MIN_REFILL_INTERVAL_NANOS && lastRefillNanos.compareAndSet(last, now)) {
+            add(elapsed * refillPerSecond / TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    private void add(long tokens) {
+        while (true) {
+            long current = balance.get();
+            long next = Math.min(capacity, current + tokens);
+            if (current == next || balance.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+}
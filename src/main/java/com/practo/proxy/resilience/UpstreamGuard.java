@@ -0,0 +1,397 @@
+package com.practo.proxy.resilience;
+
+import com.practo.proxy.config.ResilienceProperties;
+import com.practo.proxy.config.ServiceConfig;
+import com.practo.proxy.routing.ProxyRoute;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Guards upstream calls with a per-service bulkhead, adaptive concurrency limit, circuit breaker
+ * and budgeted retries, configured from {@code services.resilience.*}. Calls that are shed fail
+ * fast with {@link UpstreamUnavailableException}. The current limit of each service is published
+ * as {@code proxy.upstream.concurrency.limit}.
+ */
+@Component
+public class UpstreamGuard {
+
+    private static final RuntimeException SERVER_ERROR = new RuntimeException("Upstream 5xx", null, false, false) {
+    };
+
+    @Autowired
+    private ServiceConfig serviceConfig;
+
+    private final MeterRegistry meterRegistry;
+    private final BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final Map<String, Guard> guards = new ConcurrentHashMap<>();
+
+    public UpstreamGuard(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+    }
+
+    /**
+     * Runs an upstream call under the guards of its service. Bodyless idempotent calls that fail
+     * with an exception or a 502/503/504 status are retried while the call can still be replayed
+     * and the retry budget allows it.
+     * <p>
+     * The call reports {@link Attempt#requestSent()} once the request is written and
+     * {@link Attempt#responseReceived(int)} once response headers arrive, before copying the body.
+     * The bulkhead and limit permits are returned and the breaker and limit are fed at that point,
+     * so neither the client's upload nor its download speed counts towards upstream latency, and
+     * failures while copying the body are not blamed on the upstream.
+     *
+     * @param route the route of the upstream service
+     * @param method the HTTP method of the call
+     * @param call the upstream call
+     * @param status extracts the upstream status from the call result
+     * @param replayable tells whether the call can still be repeated, e.g. nothing was sent to the client yet
+     * @param <T> the result type
+     * @return the result of the call
+     * @throws UpstreamUnavailableException if the bulkhead is full, the adaptive limit is reached
+     *                                      or the circuit is open
+     */
+    public <T> T execute(ProxyRoute route, HttpMethod method, Function<Attempt, T> call,
+                         ToIntFunction<T> status, BooleanSupplier replayable) {
+        Guard guard = guards.computeIfAbsent(route.getName(), this::createGuard);
+        guard.retryBudget.recordCall();
+        int attempts = 0;
+        while (true) {
+            guard.acquire();
+            Attempt attempt = new Attempt(guard);
+            T result;
+            try {
+                result = call.apply(attempt);
+            } catch (RuntimeException e) {
+                attempt.failed(e);
+                if (guard.mayRetry(method, ++attempts, replayable)) {
+                    continue;
+                }
+                throw e;
+            }
+            int code = status.applyAsInt(result);
+            attempt.responseReceived(code);
+            if ((code == 502 || code == 503 || code == 504) && guard.mayRetry(method, ++attempts, replayable)) {
+                continue;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Takes the permits for a hedge: a second, identical request for a call already running under
+     * {@link #execute}. A hedge is only allowed while the circuit is closed, the service bulkhead has
+     * a free slot, the adaptive limit has room for one more call, and the retry budget, which hedges
+     * share with retries, has a token left. Hedges hold a permit of their own bulkhead, which never
+     * waits and is sized to the retry budget's share of the service bulkhead, so a hedge cannot stall
+     * the thread waiting for the original call. Hedges are not fed to the breaker, as a losing hedge
+     * is cancelled rather than failed.
+     *
+     * @param service the service of the call
+     * @return the hedge holding the permits, or null if the service has no spare capacity or budget
+     */
+    public Hedge tryHedge(String service) {
+        Guard guard = guards.get(service);
+        return guard != null && guard.tryAcquireHedge() ? new Hedge(guard) : null;
+    }
+
+    /**
+     * A hedged request holding hedge bulkhead and limit permits until the upstream answers or the
+     * request is abandoned.
+     */
+    public static final class Hedge {
+
+        private final Guard guard;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Hedge(Guard guard) {
+            this.guard = guard;
+        }
+
+        /**
+         * Records the upstream response of the hedge and returns its permits.
+         *
+         * @param status the upstream status code
+         */
+        public void responseReceived(int status) {
+            if (released.compareAndSet(false, true)) {
+                guard.releaseHedge(System.nanoTime() - startNanos, status == 503 || status == 504);
+            }
+        }
+
+        /**
+         * Returns the permits of a hedge that failed or was cancelled, without a latency sample.
+         */
+        public void abandoned() {
+            if (released.compareAndSet(false, true)) {
+                guard.releaseHedgeWithoutSample();
+            }
+        }
+    }
+
+    /**
+     * One attempt of a guarded upstream call, holding its bulkhead and limit permits until the
+     * upstream answers.
+     */
+    public static final class Attempt {
+
+        private final Guard guard;
+        private long startNanos = System.nanoTime();
+        private boolean sent;
+        private boolean completed;
+
+        private Attempt(Guard guard) {
+            this.guard = guard;
+        }
+
+        /**
+         * Marks the request as fully written, so the latency sample excludes the request upload.
+         */
+        public void requestSent() {
+            startNanos = System.nanoTime();
+            sent = true;
+        }
+
+        /**
+         * Records the upstream response and returns the permits. Only the first report counts.
+         *
+         * @param status the upstream status code
+         */
+        public void responseReceived(int status) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            long duration = System.nanoTime() - startNanos;
+            guard.release(duration, status == 503 || status == 504);
+            if (status >= 500) {
+                guard.circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, SERVER_ERROR);
+            } else {
+                guard.circuitBreaker.onSuccess(duration, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void failed(RuntimeException e) {
+            if (completed) {
+                // Failed while copying the response, e.g. the client went away: not an upstream failure.
+                return;
+            }
+            completed = true;
+            long duration = System.nanoTime() - startNanos;
+            if (!sent) {
+                // Failed while reading the client's request body.
+                guard.releaseWithoutSample();
+                guard.circuitBreaker.releasePermission();
+                return;
+            }
+            if (isTimeout(e)) {
+                guard.release(duration, true);
+            } else {
+                guard.releaseWithoutSample();
+            }
+            guard.circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, e);
+        }
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedIOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Guard createGuard(String service) {
+        ResilienceProperties properties = serviceConfig.getResilience(service);
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(service, BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getMaxConcurrentCalls())
+                .maxWaitDuration(properties.getMaxWait())
+                .build());
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(service, CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slowCallRateThreshold(properties.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(properties.getSlowCallDuration())
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(properties.getWaitInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(properties.getPermittedCallsInHalfOpenState())
+                .build());
+        Bulkhead hedgeBulkhead = bulkheadRegistry.bulkhead(service + ".hedge", BulkheadConfig.custom()
+                .maxConcurrentCalls(Math.max(1,
+                        (int) Math.ceil(properties.getMaxConcurrentCalls() * properties.getRetryBudgetRatio())))
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        RetryBudget retryBudget = new RetryBudget(properties.getRetryBudgetRatio(),
+                properties.getMinRetriesPerSecond());
+        Gauge.builder("proxy.upstream.retry.budget", retryBudget, RetryBudget::available)
+                .tag("service", service)
+                .register(meterRegistry);
+        AdaptiveLimit limit = null;
+        if (properties.isAdaptiveLimit()) {
+            limit = new AdaptiveLimit(properties.getInitialLimit(), properties.getMinLimit(),
+                    properties.getMaxConcurrentCalls());
+            Gauge.builder("proxy.upstream.concurrency.limit", limit, AdaptiveLimit::getLimit)
+                    .tag("service", service)
+                    .register(meterRegistry);
+            Gauge.builder("proxy.upstream.concurrency.in.flight", limit, AdaptiveLimit::getInFlight)
+                    .tag("service", service)
+                    .register(meterRegistry);
+        }
+        return new Guard(service, properties, bulkhead, hedgeBulkhead, limit, circuitBreaker, retryBudget);
+    }
+
+    private final class Guard {
+
+        private final ResilienceProperties properties;
+        private final Bulkhead bulkhead;
+        private final Bulkhead hedgeBulkhead;
+        private final AdaptiveLimit limit;
+        private final CircuitBreaker circuitBreaker;
+        private final RetryBudget retryBudget;
+        private final Counter bulkheadRejections;
+        private final Counter limitRejections;
+        private final Counter circuitRejections;
+        private final Counter retries;
+        private final Counter retriesDenied;
+
+        private Guard(String service, ResilienceProperties properties, Bulkhead bulkhead, Bulkhead hedgeBulkhead,
+                      AdaptiveLimit limit, CircuitBreaker circuitBreaker, RetryBudget retryBudget) {
+            this.properties = properties;
+            this.bulkhead = bulkhead;
+            this.hedgeBulkhead = hedgeBulkhead;
+            this.limit = limit;
+            this.circuitBreaker = circuitBreaker;
+            this.retryBudget = retryBudget;
+            this.bulkheadRejections = rejectionCounter(service, "bulkhead_full");
+            this.limitRejections = rejectionCounter(service, "limit_reached");
+            this.circuitRejections = rejectionCounter(service, "circuit_open");
+            this.retries = Counter.builder("proxy.upstream.retries")
+                    .tag("service", service).tag("result", "attempted").register(meterRegistry);
+            this.retriesDenied = Counter.builder("proxy.upstream.retries")
+                    .tag("service", service).tag("result", "budget_exhausted").register(meterRegistry);
+        }
+
+        private Counter rejectionCounter(String service, String reason) {
+            return Counter.builder("proxy.upstream.rejected")
+                    .tag("service", service)
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+
+        private void acquire() {
+            if (!bulkhead.tryAcquirePermission()) {
+                bulkheadRejections.increment();
+                throw new UpstreamUnavailableException(bulkhead.getName(), "bulkhead_full");
+            }
+            if (limit != null && !limit.tryAcquire()) {
+                bulkhead.onComplete();
+                limitRejections.increment();
+                throw new UpstreamUnavailableException(bulkhead.getName(), "limit_reached");
+            }
+            if (!circuitBreaker.tryAcquirePermission()) {
+                bulkhead.onComplete();
+                if (limit != null) {
+                    limit.onIgnore();
+                }
+                circuitRejections.increment();
+                throw new UpstreamUnavailableException(circuitBreaker.getName(), "circuit_open");
+            }
+        }
+
+        private boolean tryAcquireHedge() {
+            if (circuitBreaker.getState() != CircuitBreaker.State.CLOSED
+                    || bulkhead.getMetrics().getAvailableConcurrentCalls() == 0
+                    || !hedgeBulkhead.tryAcquirePermission()) {
+                return false;
+            }
+            if (limit != null && !limit.tryAcquire()) {
+                hedgeBulkhead.onComplete();
+                return false;
+            }
+            if (!retryBudget.tryWithdraw()) {
+                releaseHedgeWithoutSample();
+                return false;
+            }
+            return true;
+        }
+
+        private void releaseHedge(long durationNanos, boolean dropped) {
+            hedgeBulkhead.onComplete();
+            if (limit != null) {
+                limit.onComplete(durationNanos, dropped);
+            }
+        }
+
+        private void releaseHedgeWithoutSample() {
+            hedgeBulkhead.onComplete();
+            if (limit != null) {
+                limit.onIgnore();
+            }
+        }
+
+        private void release(long durationNanos, boolean dropped) {
+            bulkhead.onComplete();
+            if (limit != null) {
+                limit.onComplete(durationNanos, dropped);
+            }
+        }
+
+        private void releaseWithoutSample() {
+            bulkhead.onComplete();
+            if (limit != null) {
+                limit.onIgnore();
+            }
+        }
+
+        private boolean mayRetry(HttpMethod method, int attempt, BooleanSupplier replayable) {
+            if (!isRetryable(method) || attempt > properties.getMaxRetries() || !replayable.getAsBoolean()) {
+                return false;
+            }
+            if (!retryBudget.tryWithdraw()) {
+                retriesDenied.increment();
+                return false;
+            }
+            retries.increment();
+            sleep(properties.getRetryBackoff().toMillis() * attempt);
+            return true;
+        }
+    }
+
+    private static boolean isRetryable(HttpMethod method) {
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
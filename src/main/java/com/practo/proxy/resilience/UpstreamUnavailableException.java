@@ -0,0 +1,38 @@
+package com.practo.proxy.resilience;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a call to an upstream service is shed before it is sent.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final String service;
+    private final String reason;
+
+    public UpstreamUnavailableException(String service, String reason) {
+        super("Upstream " + service + " unavailable: " + reason, null, false, false);
+        this.service = service;
+        this.reason = reason;
+    }
+
+    /**
+     * Gets the service whose call was shed.
+     *
+     * @return the service name
+     */
+    public String getService() {
+        return service;
+    }
+
+    /**
+     * Gets why the call was shed.
+     *
+     * @return the rejection reason
+     */
+    public String getReason() {
+        return reason;
+    }
+}
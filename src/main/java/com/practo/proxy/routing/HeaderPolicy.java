@@ -0,0 +1,300 @@
+package com.practo.proxy.routing;
+
+import com.practo.proxy.config.HeaderPolicyConfig;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Header forwarding policy of a route, compiled once from {@code proxy.headers.*} into exact
+ * header name lists and case-insensitive deny sets. Hop-by-hop headers and headers the proxy
+ * manages itself are never copied. Calls shared between clients carry no per-client headers:
+ * neither correlation headers nor the forwarding headers.
+ */
+public final class HeaderPolicy {
+
+    /**
+     * Policy built from the default {@code proxy.headers} settings.
+     */
+    public static final HeaderPolicy DEFAULT = compile(new HeaderPolicyConfig.Policy());
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+    private static final String X_FORWARDED_PROTO = "X-Forwarded-Proto";
+    private static final String X_FORWARDED_HOST = "X-Forwarded-Host";
+
+    private static final List<String> HOP_BY_HOP = Arrays.asList(
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION,
+            "Proxy-Connection", HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.UPGRADE);
+
+    private static final List<String> MANAGED = Arrays.asList(
+            HttpHeaders.HOST, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.ACCEPT_ENCODING, "Forwarded", X_FORWARDED_FOR, X_FORWARDED_PROTO, X_FORWARDED_HOST);
+
+    private static final Set<String> CONDITIONAL = caseInsensitive(
+            HttpHeaders.IF_MATCH, HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE,
+            HttpHeaders.IF_UNMODIFIED_SINCE, HttpHeaders.IF_RANGE, HttpHeaders.RANGE);
+
+    private final String[] requestNames;
+    private final String[] requestPrefixes;
+    private final String[] responseNames;
+    private final String[] responsePrefixes;
+    private final Set<String> denied;
+    private final Set<String> correlationNames;
+    private final String[] correlationPrefixes;
+    private final boolean forwarded;
+
+    private HeaderPolicy(String[] requestNames, String[] requestPrefixes, String[] responseNames,
+                         String[] responsePrefixes, Set<String> denied, Set<String> correlationNames,
+                         String[] correlationPrefixes, boolean forwarded) {
+        this.requestNames = requestNames;
+        this.requestPrefixes = requestPrefixes;
+        this.responseNames = responseNames;
+        this.responsePrefixes = responsePrefixes;
+        this.denied = denied;
+        this.correlationNames = correlationNames;
+        this.correlationPrefixes = correlationPrefixes;
+        this.forwarded = forwarded;
+    }
+
+    /**
+     * Compiles a configured header policy.
+     *
+     * @param policy the configured policy
+     * @return the compiled policy
+     */
+    public static HeaderPolicy compile(HeaderPolicyConfig.Policy policy) {
+        Set<String> denied = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        denied.addAll(policy.getDeny());
+        denied.addAll(HOP_BY_HOP);
+        denied.addAll(MANAGED);
+        return new HeaderPolicy(
+                names(policy.getRequest(), denied), prefixes(policy.getRequest()),
+                names(policy.getResponse(), denied), prefixes(policy.getResponse()),
+                denied, caseInsensitive(names(policy.getCorrelation(), Set.of())), prefixes(policy.getCorrelation()),
+                policy.isForwarded());
+    }
+
+    /**
+     * Copies the allowed client headers to an upstream request and adds the forwarding headers.
+     *
+     * @param request the client request
+     * @param upstreamHeaders the headers of the upstream request
+     */
+    public void copyRequestHeaders(HttpServletRequest request, HttpHeaders upstreamHeaders) {
+        copyRequestHeaders(request, upstreamHeaders, false);
+    }
+
+    /**
+     * Copies the allowed client headers to an upstream call whose reply is shared with other
+     * clients, leaving out correlation and forwarding headers, which describe only the client
+     * that happened to make the call.
+     *
+     * @param request the client request
+     * @param upstreamHeaders the headers of the upstream request
+     */
+    public void copySharedRequestHeaders(HttpServletRequest request, HttpHeaders upstreamHeaders) {
+        copyRequestHeaders(request, upstreamHeaders, true);
+    }
+
+    /**
+     * Appends every client header sent on shared calls to the key of a cache entry or coalesced
+     * call, so a reply the upstream negotiated on any of them, e.g. {@code Accept-Language}, is only
+     * shared between requests that agree on all of them. Conditional and range headers are left
+     * out, since such requests never use shared replies.
+     *
+     * @param request the client request
+     * @param key the key being built
+     */
+    public void appendKey(HttpServletRequest request, StringBuilder key) {
+        String connection = request.getHeader(HttpHeaders.CONNECTION);
+        for (String name : requestNames) {
+            if (!CONDITIONAL.contains(name) && !isCorrelation(name)
+                    && (connection == null || !isNominated(connection, name))) {
+                appendKeyHeader(name, request.getHeaders(name), key);
+            }
+        }
+        if (requestPrefixes.length > 0) {
+            Set<String> matched = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            Enumeration<String> names = request.getHeaderNames();
+            while (names.hasMoreElements()) {
+                String name = names.nextElement();
+                if (matchesPrefix(name, requestPrefixes) && !denied.contains(name) && !CONDITIONAL.contains(name)
+                        && !isCorrelation(name) && (connection == null || !isNominated(connection, name))) {
+                    matched.add(name);
+                }
+            }
+            for (String name : matched) {
+                appendKeyHeader(name, request.getHeaders(name), key);
+            }
+        }
+    }
+
+    /**
+     * Copies the allowed upstream response headers to the client response.
+     *
+     * @param upstreamHeaders the headers of the upstream response
+     * @param response the client response
+     */
+    public void copyResponseHeaders(HttpHeaders upstreamHeaders, HttpServletResponse response) {
+        copyResponseHeaders(upstreamHeaders, response, false);
+    }
+
+    /**
+     * Copies the allowed headers of a reply shared between clients to one client response,
+     * leaving out correlation headers, which belong to no particular client.
+     *
+     * @param upstreamHeaders the headers of the shared upstream response
+     * @param response the client response
+     */
+    public void copySharedResponseHeaders(HttpHeaders upstreamHeaders, HttpServletResponse response) {
+        copyResponseHeaders(upstreamHeaders, response, true);
+    }
+
+    private void copyRequestHeaders(HttpServletRequest request, HttpHeaders upstreamHeaders, boolean shared) {
+        String connection = request.getHeader(HttpHeaders.CONNECTION);
+        for (String name : requestNames) {
+            if ((!shared || !isCorrelation(name)) && (connection == null || !isNominated(connection, name))) {
+                addAll(name, request.getHeaders(name), upstreamHeaders);
+            }
+        }
+        if (requestPrefixes.length > 0) {
+            Enumeration<String> names = request.getHeaderNames();
+            while (names.hasMoreElements()) {
+                String name = names.nextElement();
+                if (matchesPrefix(name, requestPrefixes) && !denied.contains(name)
+                        && (!shared || !isCorrelation(name))
+                        && (connection == null || !isNominated(connection, name))) {
+                    addAll(name, request.getHeaders(name), upstreamHeaders);
+                }
+            }
+        }
+        if (forwarded && !shared) {
+            String remoteAddr = request.getRemoteAddr();
+            String priorFor = request.getHeader(X_FORWARDED_FOR);
+            upstreamHeaders.set(X_FORWARDED_FOR, priorFor != null ? priorFor + ", " + remoteAddr : remoteAddr);
+            upstreamHeaders.set(X_FORWARDED_PROTO, request.getScheme());
+            String host = request.getHeader(HttpHeaders.HOST);
+            if (host != null) {
+                upstreamHeaders.set(X_FORWARDED_HOST, host);
+            }
+        }
+    }
+
+    private void copyResponseHeaders(HttpHeaders upstreamHeaders, HttpServletResponse response, boolean shared) {
+        String connection = upstreamHeaders.getFirst(HttpHeaders.CONNECTION);
+        for (String name : responseNames) {
+            List<String> values = upstreamHeaders.get(name);
+            if (values != null && (!shared || !isCorrelation(name))
+                    && (connection == null || !isNominated(connection, name))) {
+                for (String value : values) {
+                    response.addHeader(name, value);
+                }
+            }
+        }
+        if (responsePrefixes.length > 0) {
+            for (Map.Entry<String, List<String>> header : upstreamHeaders.entrySet()) {
+                String name = header.getKey();
+                if (matchesPrefix(name, responsePrefixes) && !denied.contains(name)
+                        && (!shared || !isCorrelation(name))
+                        && (connection == null || !isNominated(connection, name))) {
+                    for (String value : header.getValue()) {
+                        response.addHeader(name, value);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isCorrelation(String name) {
+        return correlationNames.contains(name) || matchesPrefix(name, correlationPrefixes);
+    }
+
+    private static String[] names(List<String> allowed, Set<String> denied) {
+        Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (String name : allowed) {
+            if (!name.endsWith("*") && !denied.contains(name)) {
+                names.add(name);
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    private static String[] prefixes(List<String> allowed) {
+        List<String> prefixes = new ArrayList<>();
+        for (String name : allowed) {
+            if (name.endsWith("*")) {
+                prefixes.add(name.substring(0, name.length() - 1));
+            }
+        }
+        return prefixes.toArray(new String[0]);
+    }
+
+    private static boolean matchesPrefix(String name, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a {@code Connection} header lists a header name as hop-by-hop.
+     */
+    private static boolean isNominated(String connection, String name) {
+        int start = 0;
+        while (start < connection.length()) {
+            int end = connection.indexOf(',', start);
+            if (end < 0) {
+                end = connection.length();
+            }
+            int tokenStart = start;
+            int tokenEnd = end;
+            while (tokenStart < tokenEnd && connection.charAt(tokenStart) == ' ') {
+                tokenStart++;
+            }
+            while (tokenEnd > tokenStart && connection.charAt(tokenEnd - 1) == ' ') {
+                tokenEnd--;
+            }
+            if (tokenEnd - tokenStart == name.length()
+                    && connection.regionMatches(true, tokenStart, name, 0, name.length())) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static void appendKeyHeader(String name, Enumeration<String> values, StringBuilder key) {
+        if (values == null || !values.hasMoreElements()) {
+            return;
+        }
+        key.append(name.toLowerCase(Locale.ROOT)).append('=').append(values.nextElement());
+        while (values.hasMoreElements()) {
+            key.append(',').append(values.nextElement());
+        }
+        key.append('\n');
+    }
+
+    private static Set<String> caseInsensitive(String... names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(Arrays.asList(names));
+        return set;
+    }
+
+    private static void addAll(String name, Enumeration<String> values, HttpHeaders upstreamHeaders) {
+        while (values != null && values.hasMoreElements()) {
+            upstreamHeaders.add(name, values.nextElement());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.practo.proxy.routing;
+
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+
+/**
+ * A configured upstream service reachable under {@code /proxy/{name}/v1/**}.
+ */
+public final class ProxyRoute {
+
+    private final String name;
+    private final int index;
+    private final String prefix;
+    private final String host;
+    private final RestTemplate restTemplate;
+    private final HeaderPolicy headerPolicy;
+
+    public ProxyRoute(String name, int index, String host, RestTemplate restTemplate) {
+        this(name, index, host, restTemplate, HeaderPolicy.DEFAULT);
+    }
+
+    public ProxyRoute(String name, int index, String host, RestTemplate restTemplate, HeaderPolicy headerPolicy) {
+        this.name = name;
+        this.index = index;
+        this.prefix = "/" + name + "/v1/";
+        this.host = host.endsWith("/") ? host : host + "/";
+        this.restTemplate = restTemplate;
+        this.headerPolicy = headerPolicy;
+    }
+
+    /**
+     * Gets the service name of the route.
+     *
+     * @return the service name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the position of the route in the route table.
+     *
+     * @return the route index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the path prefix, relative to {@code /proxy}, that selects this route.
+     *
+     * @return the route path prefix
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Gets the base URL of the upstream service, always ending in a slash.
+     *
+     * @return the upstream base URL
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Gets the client used to call the upstream service.
+     *
+     * @return the upstream RestTemplate
+     */
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    /**
+     * Gets the policy deciding which headers are forwarded to and from the upstream service.
+     *
+     * @return the header policy
+     */
+    public HeaderPolicy getHeaderPolicy() {
+        return headerPolicy;
+    }
+
+    /**
+     * Extracts the upstream endpoint from a path matched by this route.
+     *
+     * @param path the request path relative to {@code /proxy}
+     * @return the endpoint below the route prefix, possibly spanning several segments
+     */
+    public String endpointOf(String path) {
+        return path.substring(prefix.length());
+    }
+
+    /**
+     * Builds the upstream URI of an endpoint on this route.
+     *
+     * @param endpoint the raw endpoint below the route prefix
+     * @param rawQuery the raw query string of the client request, or null for none
+     * @return the upstream URI
+     */
+    public URI uriOf(String endpoint, String rawQuery) {
+        return UpstreamUri.build(host, endpoint, rawQuery);
+    }
+}
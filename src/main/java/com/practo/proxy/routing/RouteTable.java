@@ -0,0 +1,127 @@
+package com.practo.proxy.routing;
+
+import com.practo.proxy.client.UpstreamClientFactory;
+import com.practo.proxy.config.HeaderPolicyConfig;
+import com.practo.proxy.config.ServiceConfig;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Route table built once from {@code services.hosts}, mapping the first path segment
+ * below {@code /proxy} to its upstream route.
+ */
+@Component
+public class RouteTable {
+
+    /**
+     * Path under which all upstream services are proxied.
+     */
+    public static final String PROXY_PATH = "/proxy";
+
+    @Autowired
+    private ServiceConfig serviceConfig;
+
+    @Autowired
+    private UpstreamClientFactory upstreamClientFactory;
+
+    @Autowired
+    private HeaderPolicyConfig headerPolicyConfig;
+
+    private Map<String, ProxyRoute> routesByName = Collections.emptyMap();
+    private List<ProxyRoute> routes = Collections.emptyList();
+
+    /**
+     * Builds the routes for all configured services, in service name order.
+     */
+    @PostConstruct
+    public void init() {
+        Map<String, ProxyRoute> byName = new HashMap<>();
+        List<ProxyRoute> ordered = new ArrayList<>();
+        for (Map.Entry<String, String> host : new TreeMap<>(serviceConfig.getHosts()).entrySet()) {
+            String name = host.getKey();
+            ProxyRoute route = new ProxyRoute(name, ordered.size(), host.getValue(),
+                    upstreamClientFactory.createRestTemplate(name, host.getValue()),
+                    HeaderPolicy.compile(headerPolicyConfig.getPolicy(name)));
+            byName.put(name, route);
+            ordered.add(route);
+        }
+        this.routesByName = byName;
+        this.routes = Collections.unmodifiableList(ordered);
+    }
+
+    /**
+     * Resolves the route for a proxied path.
+     *
+     * @param path the request path relative to {@code /proxy}, e.g. {@code /titan/v1/users/42}
+     * @return the matching route, or null if no configured service matches
+     */
+    public ProxyRoute resolve(String path) {
+        int end = path.indexOf('/', 1);
+        if (end < 0) {
+            return null;
+        }
+        ProxyRoute route = routesByName.get(path.substring(1, end));
+        return route != null && path.startsWith(route.getPrefix()) ? route : null;
+    }
+
+    /**
+     * Extracts the path of a proxied request relative to {@link #PROXY_PATH}.
+     *
+     * @param request the client request
+     * @return the path below {@code /proxy}, or null if the request is not proxied
+     */
+    public static String proxyPath(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length();
+        if (!uri.startsWith(PROXY_PATH, start)) {
+            return null;
+        }
+        return uri.substring(start + PROXY_PATH.length());
+    }
+
+    /**
+     * Gets a route by its service name.
+     *
+     * @param name the service name
+     * @return the route, or null if the service is not configured
+     */
+    public ProxyRoute getRoute(String name) {
+        return routesByName.get(name);
+    }
+
+    /**
+     * Converts a services claim into the set of route indexes it grants access to.
+     *
+     * @param services the service names of the claim
+     * @return the granted route indexes
+     */
+    public BitSet grantsFor(List<String> services) {
+        BitSet grants = new BitSet(routes.size());
+        for (String service : services) {
+            ProxyRoute route = routesByName.get(service);
+            if (route != null) {
+                grants.set(route.getIndex());
+            }
+        }
+        return grants;
+    }
+
+    /**
+     * Gets all routes, ordered by their index.
+     *
+     * @return the configured routes
+     */
+    public List<ProxyRoute> getRoutes() {
+        return routes;
+    }
+}
@@ -0,0 +1,119 @@
+package com.practo.proxy.routing;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds upstream request URIs from the raw path and query of a client request. Input that is
+ * already valid URI syntax is forwarded verbatim, keeping the client's own encoding and every
+ * repeated parameter; only characters that are illegal in a URI are percent-encoded.
+ */
+public final class UpstreamUri {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] PATH_CHARS = new boolean[128];
+    private static final boolean[] QUERY_CHARS = new boolean[128];
+
+    static {
+        String pchars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
+                + "-._~" + "!$&'()*+,;=" + ":@";
+        for (char c : pchars.toCharArray()) {
+            PATH_CHARS[c] = true;
+            QUERY_CHARS[c] = true;
+        }
+        PATH_CHARS['/'] = true;
+        QUERY_CHARS['/'] = true;
+        QUERY_CHARS['?'] = true;
+    }
+
+    private UpstreamUri() {
+    }
+
+    /**
+     * Builds the URI of an upstream call.
+     *
+     * @param host the upstream base URL, ending in a slash
+     * @param endpoint the raw endpoint path below the base URL, as received from the client
+     * @param rawQuery the raw query string as received from the client, or null for none
+     * @return the upstream URI
+     */
+    public static URI build(String host, String endpoint, String rawQuery) {
+        boolean hasQuery = rawQuery != null && !rawQuery.isEmpty();
+        int pathExtra = extraLength(endpoint, PATH_CHARS);
+        int queryExtra = hasQuery ? extraLength(rawQuery, QUERY_CHARS) : 0;
+        if (pathExtra == 0 && queryExtra == 0) {
+            return URI.create(hasQuery ? host + endpoint + '?' + rawQuery : host + endpoint);
+        }
+
+        int length = host.length() + endpoint.length() + pathExtra
+                + (hasQuery ? 1 + rawQuery.length() + queryExtra : 0);
+        StringBuilder uri = new StringBuilder(length).append(host);
+        encode(endpoint, PATH_CHARS, uri);
+        if (hasQuery) {
+            uri.append('?');
+            encode(rawQuery, QUERY_CHARS, uri);
+        }
+        return URI.create(uri.toString());
+    }
+
+    /**
+     * Counts the characters percent-encoding adds to a URI component.
+     */
+    private static int extraLength(String component, boolean[] allowed) {
+        int extra = 0;
+        for (int i = 0; i < component.length(); i++) {
+            char c = component.charAt(i);
+            if (c < 128 && allowed[c]) {
+                continue;
+            }
+            if (c == '%' && isEscape(component, i)) {
+                continue;
+            }
+            extra += encodedLength(component, i) - charCount(component, i);
+            i += charCount(component, i) - 1;
+        }
+        return extra;
+    }
+
+    private static void encode(String component, boolean[] allowed, StringBuilder out) {
+        for (int i = 0; i < component.length(); i++) {
+            char c = component.charAt(i);
+            if ((c < 128 && allowed[c]) || (c == '%' && isEscape(component, i))) {
+                out.append(c);
+            } else if (c < 0x100) {
+                // Containers expose undecoded request bytes as ISO-8859-1 characters.
+                appendEscape(c, out);
+            } else {
+                int codePoint = component.codePointAt(i);
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    appendEscape(b & 0xFF, out);
+                }
+                i += Character.charCount(codePoint) - 1;
+            }
+        }
+    }
+
+    private static int encodedLength(String component, int index) {
+        char c = component.charAt(index);
+        if (c < 0x100) {
+            return 3;
+        }
+        int codePoint = component.codePointAt(index);
+        int utf8Bytes = codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+        return 3 * utf8Bytes;
+    }
+
+    private static int charCount(String component, int index) {
+        return component.charAt(index) < 0x100 ? 1 : Character.charCount(component.codePointAt(index));
+    }
+
+    private static boolean isEscape(String component, int index) {
+        return index + 2 < component.length()
+                && Character.digit(component.charAt(index + 1), 16) >= 0
+                && Character.digit(component.charAt(index + 2), 16) >= 0;
+    }
+
+    private static void appendEscape(int b, StringBuilder out) {
+        out.append('%').append(HEX[b >> 4]).append(HEX[b & 0x0F]);
+    }
+}
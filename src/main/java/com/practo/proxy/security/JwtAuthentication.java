@@ -0,0 +1,71 @@
+package com.practo.proxy.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Authentication of a request carrying a verified JWT. The principal is either the
+ * {@link VerifiedToken} itself or, when a user store is consulted, the loaded user details.
+ * Authentications are mutable, e.g. through {@link #setDetails(Object)}, so one is created per
+ * request; only the immutable token and authorities are shared.
+ */
+public final class JwtAuthentication extends AbstractAuthenticationToken {
+
+    /**
+     * Authorities granted to every token holder when the principal is built from claims alone.
+     */
+    public static final List<GrantedAuthority> USER_AUTHORITIES =
+            Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
+
+    private final Object principal;
+    private final VerifiedToken token;
+
+    public JwtAuthentication(VerifiedToken token) {
+        this(token, token, USER_AUTHORITIES);
+    }
+
+    public JwtAuthentication(VerifiedToken token, Object principal,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(authorities);
+        this.principal = principal;
+        this.token = token;
+        super.setAuthenticated(true);
+    }
+
+    /**
+     * Gets the verified token this authentication was built from.
+     *
+     * @return the verified token
+     */
+    public VerifiedToken getToken() {
+        return token;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return token.getSubject();
+    }
+
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        if (authenticated) {
+            throw new IllegalArgumentException("JWT authentications are created authenticated");
+        }
+        super.setAuthenticated(false);
+    }
+}
@@ -1,16 +1,18 @@
 package com.practo.proxy.security;
 
+import com.practo.proxy.lifecycle.UpstreamWarmup;
+import com.practo.proxy.metrics.ProxyMetrics;
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.routing.RouteTable;
 import com.practo.proxy.service.JwtService;
-import com.practo.proxy.service.UserDetailsServiceImpl;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -19,11 +21,28 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    /**
+     * Request attribute holding the {@link VerifiedToken} of an authenticated request.
+     */
+    public static final String VERIFIED_TOKEN_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".VERIFIED_TOKEN";
+
     @Autowired
     private JwtService jwtService;
 
     @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private UserDetailsCache userDetailsCache;
+
+    @Value("${jwt.user-lookup.enabled:false}")
+    private boolean userLookup;
+
+    @Autowired
+    private RouteTable routeTable;
+
+    @Autowired
+    private ProxyMetrics proxyMetrics;
+
+    @Autowired
+    private UpstreamWarmup upstreamWarmup;
 
     /**
      * Filters incoming requests to authenticate JWT tokens.
@@ -39,7 +58,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
+        final VerifiedToken verified;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -47,20 +66,39 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
-        username = jwtService.extractUsername(jwt);
-
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            if (jwtService.isTokenValid(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,
-                        userDetails.getAuthorities()
-                );
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+        String route = routeName(request);
+        long start = System.nanoTime();
+        verified = jwtService.verifyToken(jwt);
+        if (verified == null || !upstreamWarmup.isWarmup(verified)) {
+            proxyMetrics.recordPhase(ProxyMetrics.PHASE_JWT_VERIFY, route, request.getMethod(), 0,
+                    System.nanoTime() - start);
+        }
+
+        if (verified != null && verified.getSubject() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            JwtAuthentication authentication = userLookup ? loadUser(verified, route, request.getMethod())
+                    : new JwtAuthentication(verified);
+            if (authentication != null) {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                request.setAttribute(VERIFIED_TOKEN_ATTRIBUTE, verified);
             }
         }
         filterChain.doFilter(request, response);
     }
-} 
\ No newline at end of file
+
+    private JwtAuthentication loadUser(VerifiedToken verified, String route, String method) {
+        long start = System.nanoTime();
+        UserDetails userDetails = userDetailsCache.loadUserByUsername(verified.getSubject());
+        proxyMetrics.recordPhase(ProxyMetrics.PHASE_USER_LOOKUP, route, method, 0, System.nanoTime() - start);
+        if (!verified.getSubject().equals(userDetails.getUsername())) {
+            return null;
+        }
+        return new JwtAuthentication(verified, userDetails, userDetails.getAuthorities());
+    }
+
+    private String routeName(HttpServletRequest request) {
+        String path = RouteTable.proxyPath(request);
+        ProxyRoute route = path != null ? routeTable.resolve(path) : null;
+        return route != null ? route.getName() : ProxyMetrics.NO_ROUTE;
+    }
+}
@@ -1,14 +1,11 @@
 package com.practo.proxy.security;
 
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-
 @Service
 public class ProxyUserDetailsService implements UserDetailsService {
 
@@ -26,7 +23,7 @@ public class ProxyUserDetailsService implements UserDetailsService {
         return new User(
             username,
             "$2a$10$dXJ3SW6G7P50lGmMkkmwe.20cQQubK3.HZWzG3YB1tlRy.fqvM/BG", // "password" encrypted
-            Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
+            JwtAuthentication.USER_AUTHORITIES
         );
     }
 } 
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.practo.proxy.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.practo.proxy.service.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded, time-limited cache of user details in front of the user store, used when
+ * {@code jwt.user-lookup.enabled} is set. Lookups that fail are not cached.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final UserDetailsServiceImpl userDetailsService;
+    private final Cache<String, UserDetails> cache;
+
+    public UserDetailsCache(UserDetailsServiceImpl userDetailsService, MeterRegistry meterRegistry,
+                            @Value("${jwt.user-lookup.cache.max-size:10000}") long maxSize,
+                            @Value("${jwt.user-lookup.cache.ttl:5m}") Duration ttl) {
+        this.userDetailsService = userDetailsService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "proxy.user.details");
+    }
+
+    /**
+     * Loads user details, from the cache when possible.
+     *
+     * @param username the username to load
+     * @return the user details
+     * @throws UsernameNotFoundException if the user is not found
+     */
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return cache.get(username, userDetailsService::loadUserByUsername);
+    }
+}
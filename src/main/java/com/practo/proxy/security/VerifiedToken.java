@@ -0,0 +1,86 @@
+package com.practo.proxy.security;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Claims of a JWT whose signature and expiry have already been verified. Instances are immutable
+ * and shared between requests carrying the same token.
+ */
+public final class VerifiedToken {
+
+    private final String subject;
+    private final List<String> services;
+    private final long expiresAtMillis;
+    private final BitSet routeGrants;
+
+    public VerifiedToken(String subject, List<String> services, long expiresAtMillis) {
+        this(subject, services == null ? Collections.emptyList() : Collections.unmodifiableList(services),
+                expiresAtMillis, new BitSet());
+    }
+
+    private VerifiedToken(String subject, List<String> services, long expiresAtMillis, BitSet routeGrants) {
+        this.subject = subject;
+        this.services = services;
+        this.expiresAtMillis = expiresAtMillis;
+        this.routeGrants = routeGrants;
+    }
+
+    /**
+     * Creates a copy of this token carrying the route indexes its services claim grants access to.
+     *
+     * @param routeGrants the granted route indexes; not modified afterwards
+     * @return the token with route grants
+     */
+    public VerifiedToken withRouteGrants(BitSet routeGrants) {
+        return new VerifiedToken(subject, services, expiresAtMillis, routeGrants);
+    }
+
+    /**
+     * Gets the token subject.
+     *
+     * @return the username the token was issued to
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Gets the services the token is authorized for.
+     *
+     * @return the authorized services, never null
+     */
+    public List<String> getServices() {
+        return services;
+    }
+
+    /**
+     * Gets the expiry of the token.
+     *
+     * @return the expiry as epoch milliseconds
+     */
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    /**
+     * Checks whether the token's services claim grants access to a route.
+     *
+     * @param routeIndex the index of the route in the route table
+     * @return true if the route may be called with this token
+     */
+    public boolean isRouteGranted(int routeIndex) {
+        return routeGrants.get(routeIndex);
+    }
+
+    /**
+     * Checks whether the token has expired.
+     *
+     * @param nowMillis the current time as epoch milliseconds
+     * @return true if the token is no longer valid
+     */
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+}
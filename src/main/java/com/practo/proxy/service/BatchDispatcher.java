@@ -0,0 +1,364 @@
+package com.practo.proxy.service;
+
+import com.practo.proxy.accesslog.AccessLog;
+import com.practo.proxy.cache.ResponseCache;
+import com.practo.proxy.metrics.ProxyMetrics;
+import com.practo.proxy.ratelimit.RateLimiter;
+import com.practo.proxy.resilience.UpstreamUnavailableException;
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.routing.RouteTable;
+import com.practo.proxy.security.VerifiedToken;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Runs the sub-requests of a batch call in parallel through {@link ExternalService} and streams a
+ * {@code multipart/mixed} response, writing each part as soon as its sub-request finishes. Parts
+ * still running at the batch deadline are answered with 504. Part bodies and upstream replies are
+ * buffered up to the largest cacheable response; larger ones are answered with 413 and 502.
+ */
+@Service
+public class BatchDispatcher implements DisposableBean {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final Set<String> SUPPORTED_METHODS = Set.of("GET", "POST", "PUT", "DELETE");
+
+    @Autowired
+    private ExternalService externalService;
+
+    @Autowired
+    private RouteTable routeTable;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private ProxyMetrics proxyMetrics;
+
+    @Autowired
+    private AccessLog accessLog;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Value("${proxy.batch.max-requests:10}")
+    private int maxRequests;
+
+    @Value("${proxy.batch.timeout:5s}")
+    private Duration defaultTimeout;
+
+    @Value("${proxy.batch.max-timeout:30s}")
+    private Duration maxTimeout;
+
+    @Value("${proxy.batch.max-body-bytes:1048576}")
+    private int maxBodyBytes;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Gets the largest number of sub-requests accepted in one batch.
+     *
+     * @return the maximum batch size
+     */
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    /**
+     * Gets the largest batch call body accepted.
+     *
+     * @return the maximum body size in bytes
+     */
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    /**
+     * Executes a batch and streams its parts to the client in completion order.
+     *
+     * @param batch the batch call
+     * @param token the verified token of the caller
+     * @param request the client request, whose allowed headers are forwarded with every part
+     * @param response the client response
+     * @throws IOException if the response cannot be written
+     */
+    public void dispatch(BatchRequest batch, VerifiedToken token, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        List<BatchRequest.Part> parts = batch.getRequests();
+        long start = System.nanoTime();
+        long deadline = start + timeoutNanos(batch.getTimeoutMillis());
+        int maxBufferedBytes = responseCache.getMaxEntryBytes();
+
+        BlockingQueue<PartResult> completed = new LinkedBlockingQueue<>();
+        Future<?>[] running = new Future<?>[parts.size()];
+        ProxyRoute[] routes = new ProxyRoute[parts.size()];
+        // Set once a part's metrics and access log record are written, by whichever of the part
+        // and the deadline comes first, so a part is recorded with the status its client saw.
+        AtomicIntegerArray recorded = new AtomicIntegerArray(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            BatchRequest.Part part = parts.get(i);
+            String id = partId(part, i);
+            ProxyRoute route = part.getService() != null ? routeTable.getRoute(part.getService()) : null;
+            PartResult rejected = reject(id, i, part, route, token);
+            if (rejected != null) {
+                completed.add(rejected);
+                continue;
+            }
+            byte[] body = part.getBody() != null ? part.getBody().getBytes(StandardCharsets.UTF_8) : null;
+            if (body != null && body.length > maxBufferedBytes) {
+                completed.add(PartResult.error(id, i, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE));
+                continue;
+            }
+            // Servlet requests are not thread-safe: copy the forwarded headers on this thread.
+            HttpHeaders headers = new HttpHeaders();
+            route.getHeaderPolicy().copyRequestHeaders(request, headers);
+            routes[i] = route;
+            int index = i;
+            running[i] = executor.submit(() -> completed.add(
+                    execute(id, index, part, route, headers, body, maxBufferedBytes, token, recorded)));
+        }
+
+        String boundary = "batch_" + UUID.randomUUID();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("multipart/mixed; boundary=" + boundary);
+        OutputStream out = response.getOutputStream();
+        boolean[] written = new boolean[parts.size()];
+        int remaining = parts.size();
+        while (remaining > 0) {
+            PartResult result;
+            try {
+                result = completed.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result = null;
+            }
+            if (result == null) {
+                break;
+            }
+            writePart(out, boundary, result);
+            written[result.index] = true;
+            remaining--;
+        }
+        for (int i = 0; i < parts.size(); i++) {
+            if (!written[i]) {
+                if (running[i] != null) {
+                    // Claim the record before cancelling, so the interrupted part cannot record its failure.
+                    if (recorded.compareAndSet(i, 0, 1)) {
+                        record(token, routes[i], parts.get(i).getMethod(), endpointOf(parts.get(i).getPath()),
+                                HttpServletResponse.SC_GATEWAY_TIMEOUT, 0, System.nanoTime() - start);
+                    }
+                    running[i].cancel(true);
+                }
+                writePart(out, boundary, PartResult.error(partId(parts.get(i), i), i,
+                        HttpServletResponse.SC_GATEWAY_TIMEOUT));
+            }
+        }
+        out.write(("--" + boundary + "--").getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+        response.flushBuffer();
+    }
+
+    private long timeoutNanos(Long requestedMillis) {
+        Duration timeout = requestedMillis != null && requestedMillis > 0
+                ? Duration.ofMillis(requestedMillis) : defaultTimeout;
+        return Math.min(timeout.toNanos(), maxTimeout.toNanos());
+    }
+
+    /**
+     * Checks a sub-request before it is run.
+     *
+     * @return the error result of an invalid, unauthorized or rate-limited sub-request, or null to run it
+     */
+    private PartResult reject(String id, int index, BatchRequest.Part part, ProxyRoute route, VerifiedToken token) {
+        if (route == null) {
+            return PartResult.error(id, index, HttpServletResponse.SC_NOT_FOUND);
+        }
+        if (!token.isRouteGranted(route.getIndex())) {
+            return PartResult.error(id, index, HttpServletResponse.SC_FORBIDDEN);
+        }
+        if (part.getPath() == null || part.getMethod() == null
+                || !SUPPORTED_METHODS.contains(part.getMethod()) || isTraversal(part.getPath())
+                || !isMediaType(part.getContentType())) {
+            return PartResult.error(id, index, HttpServletResponse.SC_BAD_REQUEST);
+        }
+        if (rateLimiter.isEnabled() && rateLimiter.tryAcquire(token.getSubject(), route.getName()) > 0) {
+            return PartResult.error(id, index, 429);
+        }
+        return null;
+    }
+
+    private PartResult execute(String id, int index, BatchRequest.Part part, ProxyRoute route, HttpHeaders headers,
+                               byte[] body, int maxBufferedBytes, VerifiedToken token, AtomicIntegerArray recorded) {
+        HttpMethod method = HttpMethod.valueOf(part.getMethod());
+        String path = part.getPath().startsWith("/") ? part.getPath().substring(1) : part.getPath();
+        int query = path.indexOf('?');
+        String endpoint = query >= 0 ? path.substring(0, query) : path;
+        URI uri = route.uriOf(endpoint, query >= 0 ? path.substring(query + 1) : null);
+        if (body != null) {
+            headers.setContentType(part.getContentType() != null
+                    ? MediaType.parseMediaType(part.getContentType()) : MediaType.APPLICATION_JSON);
+        }
+
+        long start = System.nanoTime();
+        PartResult result;
+        try {
+            UpstreamResponse upstream = externalService.exchange(route, uri, method, headers, body, maxBufferedBytes);
+            result = upstream != null
+                    ? new PartResult(id, index, upstream.getStatus(), upstream.getHeaders().getContentType(),
+                            upstream.getBody())
+                    : PartResult.error(id, index, HttpServletResponse.SC_BAD_GATEWAY);
+        } catch (UpstreamUnavailableException e) {
+            result = PartResult.error(id, index, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        } catch (RuntimeException e) {
+            result = PartResult.error(id, index, HttpServletResponse.SC_BAD_GATEWAY);
+        }
+        if (recorded.compareAndSet(index, 0, 1)) {
+            record(token, route, method.name(), endpoint, result.status, result.body.length, System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    private void record(VerifiedToken token, ProxyRoute route, String method, String endpoint, int status, long bytes,
+                        long latency) {
+        proxyMetrics.recordRequest(route.getName(), method, status, latency);
+        accessLog.record(token.getSubject(), route.getName(), method, endpoint, status, bytes, latency);
+    }
+
+    private static String endpointOf(String partPath) {
+        String path = partPath.startsWith("/") ? partPath.substring(1) : partPath;
+        int query = path.indexOf('?');
+        return query >= 0 ? path.substring(0, query) : path;
+    }
+
+    private static void writePart(OutputStream out, String boundary, PartResult result) throws IOException {
+        StringBuilder head = new StringBuilder(128)
+                .append("--").append(boundary).append("\r\n")
+                .append("Content-ID: <").append(result.id).append(">\r\n")
+                .append("X-Status: ").append(result.status).append("\r\n");
+        if (result.contentType != null) {
+            head.append(HttpHeaders.CONTENT_TYPE).append(": ").append(result.contentType).append("\r\n");
+        }
+        head.append(HttpHeaders.CONTENT_LENGTH).append(": ").append(result.body.length).append("\r\n\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.UTF_8));
+        out.write(result.body);
+        out.write(CRLF);
+        out.flush();
+    }
+
+    private static String partId(BatchRequest.Part part, int index) {
+        String id = part.getId() != null ? part.getId() : Integer.toString(index);
+        return id.replace('\r', ' ').replace('\n', ' ').replace('>', ' ');
+    }
+
+    private static boolean isMediaType(String contentType) {
+        if (contentType == null) {
+            return true;
+        }
+        try {
+            MediaType.parseMediaType(contentType);
+            return true;
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether a part path holds a dot segment. Part paths come from the JSON body rather
+     * than the request line, so the servlet firewall never sees them; encoded dots, slashes and
+     * backslashes are decoded first, and path parameters are ignored, since the upstream client or
+     * server may resolve any of them.
+     */
+    static boolean isTraversal(String path) {
+        int query = path.indexOf('?');
+        String endpoint = decodeSeparators(query >= 0 ? path.substring(0, query) : path);
+        for (String segment : endpoint.split("[/\\\\]")) {
+            int params = segment.indexOf(';');
+            String name = params >= 0 ? segment.substring(0, params) : segment;
+            if (name.equals(".") || name.equals("..")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String decodeSeparators(String endpoint) {
+        if (endpoint.indexOf('%') < 0) {
+            return endpoint;
+        }
+        StringBuilder decoded = new StringBuilder(endpoint.length());
+        for (int i = 0; i < endpoint.length(); i++) {
+            char c = endpoint.charAt(i);
+            if (c == '%' && i + 2 < endpoint.length()) {
+                String escape = endpoint.substring(i + 1, i + 3);
+                if (escape.equalsIgnoreCase("2e")) {
+                    c = '.';
+                } else if (escape.equalsIgnoreCase("2f")) {
+                    c = '/';
+                } else if (escape.equalsIgnoreCase("5c")) {
+                    c = '\\';
+                }
+                if (c != '%') {
+                    i += 2;
+                }
+            }
+            decoded.append(c);
+        }
+        return decoded.toString();
+    }
+
+    /**
+     * Stops running sub-requests on shutdown.
+     */
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static final class PartResult {
+
+        private static final byte[] EMPTY = new byte[0];
+
+        private final String id;
+        private final int index;
+        private final int status;
+        private final MediaType contentType;
+        private final byte[] body;
+
+        private PartResult(String id, int index, int status, MediaType contentType, byte[] body) {
+            this.id = id;
+            this.index = index;
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        private static PartResult error(String id, int index, int status) {
+            return new PartResult(id, index, status, null, EMPTY);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.practo.proxy.service;
+
+import java.util.List;
+
+/**
+ * Body of a batch call: sub-requests to configured upstream services, executed in parallel.
+ */
+public class BatchRequest {
+
+    private List<Part> requests;
+    private Long timeoutMillis;
+
+    /**
+     * Gets the sub-requests of the batch.
+     *
+     * @return the sub-requests
+     */
+    public List<Part> getRequests() {
+        return requests;
+    }
+
+    /**
+     * Sets the sub-requests of the batch.
+     *
+     * @param requests the sub-requests to set
+     */
+    public void setRequests(List<Part> requests) {
+        this.requests = requests;
+    }
+
+    /**
+     * Gets the deadline requested by the client for the whole batch.
+     *
+     * @return the batch timeout in milliseconds, or null for the configured default
+     */
+    public Long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Sets the deadline requested by the client for the whole batch.
+     *
+     * @param timeoutMillis the batch timeout in milliseconds to set
+     */
+    public void setTimeoutMillis(Long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * One sub-request, addressed like {@code /proxy/{service}/v1/{path}}.
+     */
+    public static class Part {
+
+        private String id;
+        private String service;
+        private String method = "GET";
+        private String path;
+        private String contentType;
+        private String body;
+
+        /**
+         * Gets the client-chosen identifier echoed in the part's {@code Content-ID}.
+         *
+         * @return the part identifier
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Sets the client-chosen identifier echoed in the part's {@code Content-ID}.
+         *
+         * @param id the part identifier to set
+         */
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        /**
+         * Gets the upstream service name.
+         *
+         * @return the service name
+         */
+        public String getService() {
+            return service;
+        }
+
+        /**
+         * Sets the upstream service name.
+         *
+         * @param service the service name to set
+         */
+        public void setService(String service) {
+            this.service = service;
+        }
+
+        /**
+         * Gets the HTTP method of the sub-request.
+         *
+         * @return the HTTP method, GET by default
+         */
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * Sets the HTTP method of the sub-request.
+         *
+         * @param method the HTTP method to set
+         */
+        public void setMethod(String method) {
+            this.method = method;
+        }
+
+        /**
+         * Gets the endpoint below {@code /{service}/v1/}, optionally with a query string.
+         *
+         * @return the endpoint path
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Sets the endpoint below {@code /{service}/v1/}, optionally with a query string.
+         *
+         * @param path the endpoint path to set
+         */
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        /**
+         * Gets the content type of the sub-request body.
+         *
+         * @return the content type, or null for {@code application/json}
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Sets the content type of the sub-request body.
+         *
+         * @param contentType the content type to set
+         */
+        public void setContentType(String contentType) {
+            this.contentType = contentType;
+        }
+
+        /**
+         * Gets the sub-request body.
+         *
+         * @return the body, or null for none
+         */
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * Sets the sub-request body.
+         *
+         * @param body the body to set
+         */
+        public void setBody(String body) {
+            this.body = body;
+        }
+    }
+}
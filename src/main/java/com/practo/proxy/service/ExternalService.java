@@ -1,69 +1,257 @@
 package com.practo.proxy.service;
 
+import com.practo.proxy.accesslog.AccessLog;
+import com.practo.proxy.compression.ResponseCompressor;
+import com.practo.proxy.metrics.ProxyMetrics;
+import com.practo.proxy.resilience.UpstreamGuard;
+import com.practo.proxy.routing.ProxyRoute;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
 
 @Service
 public class ExternalService {
 
     @Autowired
-    private RestTemplate titanRestTemplate;
+    private UpstreamGuard upstreamGuard;
+
+    @Autowired
+    private ProxyMetrics proxyMetrics;
 
     @Autowired
-    private RestTemplate bookRestTemplate;
+    private ResponseCompressor responseCompressor;
 
     /**
-     * Calls the Titan service with the given endpoint, method, and body.
+     * Streams a request to the upstream service of a route and the reply back to the client
+     * without parsing either body.
      *
-     * @param endpoint the endpoint to call
+     * @param route the route of the upstream service
+     * @param endpoint the upstream URI to call
      * @param method the HTTP method
-     * @param body the request body
-     * @return the response from the Titan service
+     * @param request the client request whose body is forwarded as raw bytes
+     * @param response the client response the upstream reply is copied into
      */
-    public ResponseEntity<String> callTitanService(String endpoint, HttpMethod method, Object body) {
-        HttpHeaders headers = new HttpHeaders();
-        HttpEntity<Object> entity = new HttpEntity<>(body, headers);
-        return titanRestTemplate.exchange(endpoint, method, entity, String.class);
+    public void streamService(ProxyRoute route, URI endpoint, HttpMethod method,
+                              HttpServletRequest request, HttpServletResponse response) {
+        upstreamGuard.execute(route, method,
+                attempt -> route.getRestTemplate().execute(endpoint, method,
+                        upstreamRequest -> {
+                            long start = System.nanoTime();
+                            copyRequest(route, request, upstreamRequest);
+                            proxyMetrics.recordPhase(ProxyMetrics.PHASE_REQUEST_BODY, route.getName(),
+                                    method.name(), 0, System.nanoTime() - start);
+                            attempt.requestSent();
+                        },
+                        upstreamResponse -> {
+                            long start = System.nanoTime();
+                            int status = upstreamResponse.getStatusCode().value();
+                            attempt.responseReceived(status);
+                            copyResponse(route, upstreamResponse, request, response);
+                            proxyMetrics.recordPhase(ProxyMetrics.PHASE_RESPONSE_COPY, route.getName(),
+                                    method.name(), status, System.nanoTime() - start);
+                            return status;
+                        }),
+                status -> status != null ? status : 0,
+                () -> !response.isCommitted());
     }
 
     /**
-     * Calls the Book service with the given endpoint, method, and body.
+     * Calls the upstream service of a route and buffers the reply if it fits within a limit.
      *
-     * @param endpoint the endpoint to call
+     * @param route the route of the upstream service
+     * @param endpoint the upstream URI to call
      * @param method the HTTP method
-     * @param body the request body
-     * @return the response from the Book service
+     * @param headers the request headers
+     * @param body the raw request body, or null for none
+     * @param maxBufferedBytes the largest body that is buffered
+     * @return the buffered upstream reply, or null if its body exceeds the limit
      */
-    public ResponseEntity<String> callBookService(String endpoint, HttpMethod method, Object body) {
-        HttpHeaders headers = new HttpHeaders();
-        HttpEntity<Object> entity = new HttpEntity<>(body, headers);
-        return bookRestTemplate.exchange(endpoint, method, entity, String.class);
+    public UpstreamResponse exchange(ProxyRoute route, URI endpoint, HttpMethod method,
+                                     HttpHeaders headers, byte[] body, int maxBufferedBytes) {
+        return upstreamGuard.execute(route, method,
+                attempt -> route.getRestTemplate().execute(endpoint, method,
+                        upstreamRequest -> {
+                            upstreamRequest.getHeaders().addAll(headers);
+                            if (body != null) {
+                                upstreamRequest.getBody().write(body);
+                            }
+                            attempt.requestSent();
+                        },
+                        upstreamResponse -> {
+                            attempt.responseReceived(upstreamResponse.getStatusCode().value());
+                            if (upstreamResponse.getHeaders().getContentLength() > maxBufferedBytes) {
+                                return null;
+                            }
+                            InputStream in = upstreamResponse.getBody();
+                            byte[] buffered = in != null ? in.readNBytes(maxBufferedBytes + 1) : new byte[0];
+                            return buffered.length <= maxBufferedBytes
+                                    ? new UpstreamResponse(upstreamResponse.getStatusCode().value(),
+                                            copyHeaders(upstreamResponse), buffered)
+                                    : null;
+                        }),
+                ExternalService::statusOf,
+                () -> true);
     }
 
     /**
-     * Calls the Titan service with the given endpoint and method.
+     * Calls the upstream service of a route on behalf of every client sharing the reply and buffers
+     * the reply if it fits within a limit. Larger replies are streamed straight to the client instead.
      *
-     * @param endpoint the endpoint to call
+     * @param route the route of the upstream service
+     * @param endpoint the upstream URI to call
      * @param method the HTTP method
-     * @return the response from the Titan service
+     * @param headers the request headers, replacing client headers of the same name
+     * @param request the client request whose allowed, non-correlation headers are forwarded
+     * @param response the client response that receives replies exceeding the limit
+     * @param maxBufferedBytes the largest body that is buffered
+     * @return the buffered upstream reply, or null if it was streamed to the client
      */
-    public ResponseEntity<String> callTitanService(String endpoint, HttpMethod method) {
-        return callTitanService(endpoint, method, null);
+    public UpstreamResponse exchange(ProxyRoute route, URI endpoint, HttpMethod method, HttpHeaders headers,
+                                     HttpServletRequest request, HttpServletResponse response,
+                                     int maxBufferedBytes) {
+        return upstreamGuard.execute(route, method,
+                attempt -> route.getRestTemplate().execute(endpoint, method,
+                        upstreamRequest -> {
+                            route.getHeaderPolicy().copySharedRequestHeaders(request, upstreamRequest.getHeaders());
+                            upstreamRequest.getHeaders().putAll(headers);
+                            attempt.requestSent();
+                        },
+                        upstreamResponse -> {
+                            long start = System.nanoTime();
+                            attempt.responseReceived(upstreamResponse.getStatusCode().value());
+                            UpstreamResponse buffered = bufferOrStream(route, upstreamResponse, request, response,
+                                    maxBufferedBytes);
+                            proxyMetrics.recordPhase(ProxyMetrics.PHASE_RESPONSE_COPY, route.getName(), method.name(),
+                                    upstreamResponse.getStatusCode().value(), System.nanoTime() - start);
+                            return buffered;
+                        }),
+                ExternalService::statusOf,
+                () -> !response.isCommitted());
     }
 
     /**
-     * Calls the Book service with the given endpoint and method.
+     * Writes a buffered upstream reply to the client.
      *
-     * @param endpoint the endpoint to call
-     * @param method the HTTP method
-     * @return the response from the Book service
+     * @param route the route the reply came from
+     * @param upstreamResponse the buffered upstream reply
+     * @param request the client request
+     * @param response the client response
+     * @throws IOException if the response cannot be written
      */
-    public ResponseEntity<String> callBookService(String endpoint, HttpMethod method) {
-        return callBookService(endpoint, method, null);
+    public void writeResponse(ProxyRoute route, UpstreamResponse upstreamResponse, HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        HttpHeaders upstreamHeaders = upstreamResponse.getHeaders();
+        response.setStatus(upstreamResponse.getStatus());
+        if (upstreamHeaders.getContentType() != null) {
+            response.setContentType(upstreamHeaders.getContentType().toString());
+        }
+        route.getHeaderPolicy().copySharedResponseHeaders(upstreamHeaders, response);
+        OutputStream out = responseCompressor.bodyStream(request, upstreamHeaders, upstreamResponse.getStatus(),
+                upstreamResponse.getBody().length, response);
+        out.write(upstreamResponse.getBody());
+        ResponseCompressor.finish(out);
+        response.flushBuffer();
+        recordBytes(request, upstreamResponse.getBody().length);
+    }
+
+    /**
+     * Answers a client's conditional request with 304 and the validators of a buffered reply.
+     *
+     * @param route the route the reply came from
+     * @param upstreamResponse the buffered upstream reply the client's copy matches
+     * @param response the client response
+     * @throws IOException if the response cannot be written
+     */
+    public void writeNotModified(ProxyRoute route, UpstreamResponse upstreamResponse, HttpServletResponse response)
+            throws IOException {
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        route.getHeaderPolicy().copySharedResponseHeaders(upstreamResponse.getHeaders(), response);
+        response.flushBuffer();
+    }
+
+    private UpstreamResponse bufferOrStream(ProxyRoute route, ClientHttpResponse upstreamResponse,
+                                            HttpServletRequest request, HttpServletResponse response,
+                                            int maxBufferedBytes) throws IOException {
+        if (upstreamResponse.getHeaders().getContentLength() > maxBufferedBytes) {
+            copyResponse(route, upstreamResponse, request, response);
+            return null;
+        }
+        InputStream body = upstreamResponse.getBody();
+        byte[] buffered = body != null ? body.readNBytes(maxBufferedBytes + 1) : new byte[0];
+        if (buffered.length <= maxBufferedBytes) {
+            return new UpstreamResponse(upstreamResponse.getStatusCode().value(), copyHeaders(upstreamResponse),
+                    buffered);
+        }
+        copyResponseHead(route, upstreamResponse, response);
+        OutputStream out = responseCompressor.bodyStream(request, upstreamResponse.getHeaders(),
+                upstreamResponse.getStatusCode().value(), upstreamResponse.getHeaders().getContentLength(), response);
+        out.write(buffered);
+        long bytes = buffered.length + (long) StreamUtils.copy(body, out);
+        ResponseCompressor.finish(out);
+        response.flushBuffer();
+        recordBytes(request, bytes);
+        return null;
+    }
+
+    private static void recordBytes(HttpServletRequest request, long bytes) {
+        request.setAttribute(AccessLog.RESPONSE_BYTES_ATTRIBUTE, bytes);
+    }
+
+    private static int statusOf(UpstreamResponse upstreamResponse) {
+        return upstreamResponse != null ? upstreamResponse.getStatus() : 0;
+    }
+
+    private static HttpHeaders copyHeaders(ClientHttpResponse upstreamResponse) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(upstreamResponse.getHeaders());
+        return headers;
+    }
+
+    private void copyRequest(ProxyRoute route, HttpServletRequest request, ClientHttpRequest upstreamRequest)
+            throws IOException {
+        route.getHeaderPolicy().copyRequestHeaders(request, upstreamRequest.getHeaders());
+        if (request.getContentType() != null) {
+            upstreamRequest.getHeaders().setContentType(MediaType.parseMediaType(request.getContentType()));
+        }
+        upstreamRequest.getHeaders().set(HttpHeaders.ACCEPT_ENCODING,
+                ResponseCompressor.upstreamAcceptEncoding(request));
+        if (request.getContentLengthLong() != 0) {
+            StreamUtils.copy(request.getInputStream(), upstreamRequest.getBody());
+        }
+    }
+
+    private void copyResponse(ProxyRoute route, ClientHttpResponse upstreamResponse, HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        copyResponseHead(route, upstreamResponse, response);
+        HttpHeaders upstreamHeaders = upstreamResponse.getHeaders();
+        OutputStream out = responseCompressor.bodyStream(request, upstreamHeaders,
+                upstreamResponse.getStatusCode().value(), upstreamHeaders.getContentLength(), response);
+        InputStream body = upstreamResponse.getBody();
+        long bytes = body != null ? StreamUtils.copy(body, out) : 0;
+        ResponseCompressor.finish(out);
+        response.flushBuffer();
+        recordBytes(request, bytes);
+    }
+
+    private void copyResponseHead(ProxyRoute route, ClientHttpResponse upstreamResponse,
+                                  HttpServletResponse response) throws IOException {
+        HttpHeaders upstreamHeaders = upstreamResponse.getHeaders();
+        response.setStatus(upstreamResponse.getStatusCode().value());
+        if (upstreamHeaders.getContentType() != null) {
+            response.setContentType(upstreamHeaders.getContentType().toString());
+        }
+        route.getHeaderPolicy().copyResponseHeaders(upstreamHeaders, response);
     }
-} 
\ No newline at end of file
+}
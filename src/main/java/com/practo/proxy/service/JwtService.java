@@ -1,5 +1,6 @@
 package com.practo.proxy.service;
 
+import com.practo.proxy.security.VerifiedToken;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.List;
@@ -18,6 +19,22 @@ public interface JwtService {
    */
   String generateToken(String username, List<String> authorizedServices);
 
+  /**
+   * Generates one JWT token per username, all authorized for the same services.
+   *
+   * @param usernames the usernames to issue tokens to
+   * @param authorizedServices the list of services the users are authorized to access
+   * @return the generated JWT tokens, in the order of the usernames
+   */
+  List<String> generateTokens(List<String> usernames, List<String> authorizedServices);
+
+  /**
+   * Gets the lifetime of generated tokens.
+   *
+   * @return the token lifetime in milliseconds
+   */
+  long getTokenLifetimeMillis();
+
   /**
    * Extracts the username from a JWT token.
    *
@@ -42,6 +59,14 @@ public interface JwtService {
    */
   Boolean validateToken(String token);
 
+  /**
+   * Verifies a JWT token once and returns its claims, reusing earlier verifications of the same token.
+   *
+   * @param token the JWT token to verify
+   * @return the verified token claims, or null if the token is invalid
+   */
+  VerifiedToken verifyToken(String token);
+
   /**
    * Checks if a JWT token is valid for the given user details.
    *
@@ -1,6 +1,10 @@
 package com.practo.proxy.service;
 
+import com.practo.proxy.routing.RouteTable;
+import com.practo.proxy.security.VerifiedToken;
+import com.practo.proxy.security.VerifiedTokenCache;
 import com.practo.proxy.util.JwtUtil;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -13,6 +17,12 @@ public class JwtServiceImpl implements JwtService {
   @Autowired
   private JwtUtil jwtUtil;
 
+  @Autowired
+  private VerifiedTokenCache verifiedTokenCache;
+
+  @Autowired
+  private RouteTable routeTable;
+
   /**
    * Generates a JWT token for the given username and authorized services.
    *
@@ -25,6 +35,28 @@ public class JwtServiceImpl implements JwtService {
     return jwtUtil.generateToken(username, authorizedServices);
   }
 
+  /**
+   * Generates one JWT token per username, all authorized for the same services.
+   *
+   * @param usernames the usernames to issue tokens to
+   * @param authorizedServices the list of services the users are authorized to access
+   * @return the generated JWT tokens, in the order of the usernames
+   */
+  @Override
+  public List<String> generateTokens(List<String> usernames, List<String> authorizedServices) {
+    return jwtUtil.generateTokens(usernames, authorizedServices);
+  }
+
+  /**
+   * Gets the lifetime of generated tokens.
+   *
+   * @return the token lifetime in milliseconds
+   */
+  @Override
+  public long getTokenLifetimeMillis() {
+    return jwtUtil.getExpiration();
+  }
+
   /**
    * Extracts the username from a JWT token.
    *
@@ -58,6 +90,28 @@ public class JwtServiceImpl implements JwtService {
     return jwtUtil.validateToken(token);
   }
 
+  /**
+   * Verifies a JWT token once and returns its claims, reusing earlier verifications of the same token.
+   *
+   * @param token the JWT token to verify
+   * @return the verified token claims, or null if the token is invalid
+   */
+  @Override
+  public VerifiedToken verifyToken(String token) {
+    VerifiedToken verified = verifiedTokenCache.get(token);
+    if (verified != null) {
+      return verified;
+    }
+    try {
+      verified = jwtUtil.parseToken(token);
+      verified = verified.withRouteGrants(routeTable.grantsFor(verified.getServices()));
+    } catch (JwtException | IllegalArgumentException e) {
+      return null;
+    }
+    verifiedTokenCache.put(token, verified);
+    return verified;
+  }
+
   /**
    * Checks if a JWT token is valid for the given user details.
    *
@@ -67,7 +121,7 @@ public class JwtServiceImpl implements JwtService {
    */
   @Override
   public Boolean isTokenValid(String token, UserDetails userDetails) {
-    final String username = extractUsername(token);
-    return (username.equals(userDetails.getUsername()) && validateToken(token));
+    final VerifiedToken verified = verifyToken(token);
+    return (verified != null && userDetails.getUsername().equals(verified.getSubject()));
   }
 } 
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.practo.proxy.service;
+
+import com.practo.proxy.cache.CachedResponse;
+import com.practo.proxy.cache.ResponseCache;
+import com.practo.proxy.compression.ResponseCompressor;
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.util.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Entry point of the proxy path, deciding whether a request is served from the response cache,
+ * coalesced with identical in-flight GETs, or streamed through {@link ExternalService}.
+ */
+@Service
+public class ProxyDispatcher {
+
+    @Autowired
+    private ExternalService externalService;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Value("${proxy.coalescing.enabled:false}")
+    private boolean coalescingEnabled;
+
+    private final SingleFlight<String, UpstreamResponse> singleFlight = new SingleFlight<>();
+
+    public ProxyDispatcher(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("proxy.coalescing.joined", singleFlight, SingleFlight::getCoalescedCount)
+                .description("GET requests that shared an identical in-flight upstream call")
+                .register(meterRegistry);
+        Gauge.builder("proxy.coalescing.in.flight", singleFlight, SingleFlight::getInFlightCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Proxies a client request to the upstream service of a route.
+     *
+     * @param route the route of the upstream service
+     * @param endpoint the upstream endpoint below the route prefix
+     * @param url the upstream URI including the query string
+     * @param method the HTTP method
+     * @param request the client request
+     * @param response the client response
+     * @throws IOException if the response cannot be written
+     */
+    public void dispatch(ProxyRoute route, String endpoint, URI url, HttpMethod method,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (HttpMethod.GET.equals(method) && (responseCache.isEnabled() || coalescingEnabled)) {
+            if (!isConditionalOrRange(request)) {
+                dispatchBuffered(route, endpoint, url, request, response);
+                return;
+            }
+            if (responseCache.isEnabled() && answerFromCache(route, endpoint, request, response)) {
+                return;
+            }
+        }
+        externalService.streamService(route, url, method, request, response);
+    }
+
+    /**
+     * Conditional and range requests are answered per client, so they bypass shared cache entries
+     * and coalesced calls, and are streamed to the upstream with the client's headers.
+     */
+    private static boolean isConditionalOrRange(HttpServletRequest request) {
+        return request.getHeader(HttpHeaders.RANGE) != null
+                || request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null
+                || request.getHeader(HttpHeaders.IF_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_UNMODIFIED_SINCE) != null;
+    }
+
+    /**
+     * Answers a conditional GET with 304 when a fresh cache entry shows the client's copy is current.
+     */
+    private boolean answerFromCache(ProxyRoute route, String endpoint, HttpServletRequest request,
+                                    HttpServletResponse response) throws IOException {
+        if (request.getHeader(HttpHeaders.RANGE) != null || request.getHeader(HttpHeaders.IF_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_UNMODIFIED_SINCE) != null
+                || responseCache.requiresRevalidation(request)) {
+            return false;
+        }
+        CachedResponse cached = responseCache.get(responseCache.key(route, endpoint, request));
+        if (cached == null || !cached.isFresh(System.currentTimeMillis())) {
+            return false;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (!cached.isNotModified(request.getHeader(HttpHeaders.IF_NONE_MATCH), ifModifiedSince)) {
+            return false;
+        }
+        externalService.writeNotModified(route, cached.getResponse(), response);
+        return true;
+    }
+
+    private void dispatchBuffered(ProxyRoute route, String endpoint, URI url,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String key = responseCache.key(route, endpoint, request);
+        CachedResponse cached = responseCache.isEnabled() ? responseCache.get(key) : null;
+        if (cached != null && cached.isFresh(System.currentTimeMillis()) && !responseCache.requiresRevalidation(request)) {
+            externalService.writeResponse(route, cached.getResponse(), request, response);
+            return;
+        }
+
+        UpstreamResponse upstream = coalescingEnabled
+                ? singleFlight.execute(key, () -> fetch(route, key, url, cached, request, response))
+                : fetch(route, key, url, cached, request, response);
+        if (upstream != null) {
+            externalService.writeResponse(route, upstream, request, response);
+        }
+    }
+
+    private UpstreamResponse fetch(ProxyRoute route, String key, URI url, CachedResponse cached,
+                                   HttpServletRequest request, HttpServletResponse response) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, ResponseCompressor.upstreamAcceptEncoding(request));
+        if (cached != null) {
+            cached.addConditionalHeaders(headers);
+        }
+        UpstreamResponse upstream = externalService.exchange(route, url, HttpMethod.GET, headers,
+                request, response, responseCache.getMaxEntryBytes());
+        if (upstream == null || !responseCache.isEnabled()) {
+            return upstream;
+        }
+        if (cached != null && upstream.getStatus() == HttpStatus.NOT_MODIFIED.value()) {
+            return responseCache.revalidated(key, cached, upstream).getResponse();
+        }
+        if (cached != null) {
+            responseCache.recordModified();
+        }
+        responseCache.store(key, upstream);
+        return upstream;
+    }
+}
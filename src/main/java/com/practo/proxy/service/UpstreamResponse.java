@@ -0,0 +1,46 @@
+package com.practo.proxy.service;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Fully buffered reply of an upstream service.
+ */
+public final class UpstreamResponse {
+
+    private final int status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+
+    public UpstreamResponse(int status, HttpHeaders headers, byte[] body) {
+        this.status = status;
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.body = body;
+    }
+
+    /**
+     * Gets the HTTP status code.
+     *
+     * @return the status code
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the response headers.
+     *
+     * @return the read-only response headers
+     */
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Gets the response body. The array is shared and must not be modified.
+     *
+     * @return the body bytes
+     */
+    public byte[] getBody() {
+        return body;
+    }
+}
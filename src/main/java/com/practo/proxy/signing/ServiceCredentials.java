@@ -0,0 +1,56 @@
+package com.practo.proxy.signing;
+
+import com.practo.proxy.config.ServiceConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of the signing secrets of the upstream services, built once from {@code services.keys}.
+ * This is the only place service credentials are read from configuration; the commons-security
+ * signing factory receives them through the {@code SecureProperties} bean.
+ */
+@Component
+public class ServiceCredentials {
+
+    private final String clientName;
+    private final Map<String, String> secrets;
+
+    public ServiceCredentials(ServiceConfig serviceConfig,
+                              @Value("${proxy.signing.client-name:proxy-service}") String clientName) {
+        this.clientName = clientName;
+        Map<String, String> keys = serviceConfig.getKeys();
+        this.secrets = keys != null ? Collections.unmodifiableMap(new HashMap<>(keys)) : Collections.emptyMap();
+    }
+
+    /**
+     * Gets the name this proxy signs its upstream requests as.
+     *
+     * @return the client name
+     */
+    public String getClientName() {
+        return clientName;
+    }
+
+    /**
+     * Gets the signing secret of a service.
+     *
+     * @param service the service name
+     * @return the secret, or null if the service has none configured
+     */
+    public String getSecret(String service) {
+        return secrets.get(service);
+    }
+
+    /**
+     * Gets the signing secrets of all services.
+     *
+     * @return the read-only secrets by service name
+     */
+    public Map<String, String> getSecrets() {
+        return secrets;
+    }
+}
@@ -0,0 +1,54 @@
+package com.practo.proxy.signing;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times a signing interceptor of the commons-security RestTemplate: the time from entering the
+ * interceptor until it hands the signed request on, so the upstream call itself is not included.
+ * The signature scheme is left entirely to the wrapped interceptor.
+ */
+public class TimedSigningInterceptor implements ClientHttpRequestInterceptor {
+
+    private final ClientHttpRequestInterceptor delegate;
+    private final Timer timer;
+
+    public TimedSigningInterceptor(ClientHttpRequestInterceptor delegate, Timer timer) {
+        this.delegate = delegate;
+        this.timer = timer;
+    }
+
+    /**
+     * Wraps every interceptor of a RestTemplate with a signing timer.
+     *
+     * @param interceptors the interceptors installed by the signing RestTemplate factory
+     * @param timer the timer recording the signing time
+     * @return the timed interceptors, in the same order
+     */
+    public static List<ClientHttpRequestInterceptor> wrap(List<ClientHttpRequestInterceptor> interceptors,
+                                                          Timer timer) {
+        List<ClientHttpRequestInterceptor> timed = new ArrayList<>(interceptors.size());
+        for (ClientHttpRequestInterceptor interceptor : interceptors) {
+            timed.add(new TimedSigningInterceptor(interceptor, timer));
+        }
+        return timed;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        long start = System.nanoTime();
+        return delegate.intercept(request, body, (signedRequest, signedBody) -> {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return execution.execute(signedRequest, signedBody);
+        });
+    }
+}
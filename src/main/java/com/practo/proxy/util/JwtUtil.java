@@ -1,11 +1,18 @@
 package com.practo.proxy.util;
 
+import com.practo.proxy.security.VerifiedToken;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.function.Function;
@@ -13,11 +20,21 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long expiration;
 
-    @Value("${jwt.expiration}")
-    private Long expiration;
+    /**
+     * Creates the utility with a signing key decoded once from the configured secret.
+     *
+     * @param secret the base64 encoded HMAC secret
+     * @param expiration the token lifetime in milliseconds
+     */
+    public JwtUtil(@Value("${jwt.secret}") String secret, @Value("${jwt.expiration}") long expiration) {
+        this.signingKey = new SecretKeySpec(Decoders.BASE64.decode(secret), SignatureAlgorithm.HS256.getJcaName());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.expiration = expiration;
+    }
 
     /**
      * Generates a JWT token for the given username and authorized services.
@@ -27,13 +44,36 @@ public class JwtUtil {
      * @return the generated JWT token
      */
     public String generateToken(String username, List<String> authorizedServices) {
-        return Jwts.builder()
-                .setSubject(username)
-                .claim("services", authorizedServices)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(SignatureAlgorithm.HS256, secret)
-                .compact();
+        long now = System.currentTimeMillis();
+        return buildToken(username, authorizedServices, new Date(now), new Date(now + expiration));
+    }
+
+    /**
+     * Generates one JWT token per username, all authorized for the same services and sharing
+     * the same issue and expiry time.
+     *
+     * @param usernames the usernames to issue tokens to
+     * @param authorizedServices the list of services the users are authorized to access
+     * @return the generated JWT tokens, in the order of the usernames
+     */
+    public List<String> generateTokens(List<String> usernames, List<String> authorizedServices) {
+        long now = System.currentTimeMillis();
+        Date issuedAt = new Date(now);
+        Date expiresAt = new Date(now + expiration);
+        List<String> tokens = new ArrayList<>(usernames.size());
+        for (String username : usernames) {
+            tokens.add(buildToken(username, authorizedServices, issuedAt, expiresAt));
+        }
+        return tokens;
+    }
+
+    /**
+     * Gets the lifetime of generated tokens.
+     *
+     * @return the token lifetime in milliseconds
+     */
+    public long getExpiration() {
+        return expiration;
     }
 
     /**
@@ -65,19 +105,47 @@ public class JwtUtil {
      */
     public Boolean validateToken(String token) {
         try {
-            Jwts.parser().setSigningKey(secret).parseClaimsJws(token);
+            parser.parseClaimsJws(token);
             return true;
         } catch (Exception e) {
             return false;
         }
     }
 
+    /**
+     * Verifies a JWT token and extracts all claims needed downstream in a single parse.
+     *
+     * @param token the JWT token
+     * @return the verified token claims
+     * @throws JwtException if the token is malformed, expired or has an invalid signature
+     */
+    @SuppressWarnings("unchecked")
+    public VerifiedToken parseToken(String token) {
+        final Claims claims = extractAllClaims(token);
+        final Date expiresAt = claims.getExpiration();
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.get("services", List.class),
+                expiresAt == null ? Long.MAX_VALUE : expiresAt.getTime()
+        );
+    }
+
     private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = extractAllClaims(token);
         return claimsResolver.apply(claims);
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    private String buildToken(String username, List<String> authorizedServices, Date issuedAt, Date expiresAt) {
+        return Jwts.builder()
+                .setSubject(username)
+                .claim("services", authorizedServices)
+                .setIssuedAt(issuedAt)
+                .setExpiration(expiresAt)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.practo.proxy.util;
+
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseErrorHandler;
+
+/**
+ * Response error handler that treats every upstream status as a normal response,
+ * so 4xx/5xx replies reach the client unchanged instead of surfacing as exceptions.
+ */
+public class PassThroughResponseErrorHandler implements ResponseErrorHandler {
+
+    @Override
+    public boolean hasError(ClientHttpResponse response) {
+        return false;
+    }
+
+    @Override
+    public void handleError(ClientHttpResponse response) {
+        // never invoked since hasError always returns false
+    }
+}
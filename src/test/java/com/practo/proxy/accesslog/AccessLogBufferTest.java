@@ -0,0 +1,138 @@
+package com.practo.proxy.accesslog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogBufferTest {
+
+    @Test
+    void dropsAndCountsRecordsOnceTheRingIsFull() {
+        AccessLogBuffer buffer = new AccessLogBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(offer(buffer, 0, i));
+        }
+        assertFalse(offer(buffer, 0, 4));
+        assertFalse(offer(buffer, 0, 5));
+
+        assertEquals(2, buffer.getDropped());
+        assertEquals(4, buffer.getPending());
+    }
+
+    @Test
+    void roundsTheCapacityUpToAPowerOfTwo() {
+        AccessLogBuffer buffer = new AccessLogBuffer(5);
+        int accepted = 0;
+        while (offer(buffer, 0, accepted)) {
+            accepted++;
+        }
+        assertEquals(8, accepted);
+    }
+
+    @Test
+    void drainsInOrderAcrossWraparound() {
+        AccessLogBuffer buffer = new AccessLogBuffer(4);
+        List<Long> drained = new ArrayList<>();
+        long next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(offer(buffer, 0, next++));
+            }
+            assertEquals(3, buffer.drain(Integer.MAX_VALUE, slot -> drained.add(slot.bytes)));
+        }
+
+        assertEquals(30, drained.size());
+        for (int i = 0; i < drained.size(); i++) {
+            assertEquals(i, drained.get(i));
+        }
+        assertEquals(0, buffer.getPending());
+        assertEquals(0, buffer.getDropped());
+    }
+
+    @Test
+    void drainsAtMostTheRequestedNumberAndFreesTheirSlots() {
+        AccessLogBuffer buffer = new AccessLogBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            offer(buffer, 0, i);
+        }
+        List<Long> drained = new ArrayList<>();
+        assertEquals(3, buffer.drain(3, slot -> drained.add(slot.bytes)));
+        assertEquals(List.of(0L, 1L, 2L), drained);
+
+        assertTrue(offer(buffer, 0, 4));
+        assertTrue(offer(buffer, 0, 5));
+        assertTrue(offer(buffer, 0, 6));
+        assertFalse(offer(buffer, 0, 7));
+
+        drained.clear();
+        assertEquals(4, buffer.drain(10, slot -> drained.add(slot.bytes)));
+        assertEquals(List.of(3L, 4L, 5L, 6L), drained);
+        assertEquals(0, buffer.drain(10, slot -> drained.add(slot.bytes)));
+    }
+
+    @Test
+    void keepsEveryRecordOfConcurrentProducersOrDropsIt() throws InterruptedException {
+        int producers = 4;
+        int recordsPerProducer = 50_000;
+        AccessLogBuffer buffer = new AccessLogBuffer(256);
+        long[] lastSeen = new long[producers];
+        Arrays.fill(lastSeen, -1);
+        long[] received = new long[1];
+        AtomicBoolean outOfOrder = new AtomicBoolean();
+        AccessLogBuffer.Sink sink = slot -> {
+            int producer = slot.status;
+            if (slot.bytes <= lastSeen[producer]) {
+                outOfOrder.set(true);
+            }
+            lastSeen[producer] = slot.bytes;
+            received[0]++;
+        };
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(producers);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < recordsPerProducer; i++) {
+                        offer(buffer, producer, i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        while (done.getCount() > 0) {
+            buffer.drain(64, sink);
+        }
+        while (buffer.drain(64, sink) > 0) {
+            // drain what the producers published last
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertFalse(outOfOrder.get());
+        assertEquals((long) producers * recordsPerProducer, received[0] + buffer.getDropped());
+        assertEquals(0, buffer.getPending());
+    }
+
+    private static boolean offer(AccessLogBuffer buffer, int producer, long sequence) {
+        return buffer.offer(0, "subject", "titan", "GET", "users", producer, sequence, 0);
+    }
+}
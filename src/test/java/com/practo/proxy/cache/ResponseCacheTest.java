@@ -0,0 +1,252 @@
+package com.practo.proxy.cache;
+
+import com.practo.proxy.config.ResponseCacheConfig;
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.security.JwtAuthenticationFilter;
+import com.practo.proxy.security.VerifiedToken;
+import com.practo.proxy.service.UpstreamResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheTest {
+
+    private static final long DATE = 1_700_000_000_000L;
+    private static final byte[] BODY = "{\"id\":42}".getBytes(StandardCharsets.UTF_8);
+
+    private final ResponseCacheConfig config = new ResponseCacheConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResponseCache cache = new ResponseCache(config, meterRegistry);
+    private final ProxyRoute titan = new ProxyRoute("titan", 0, "http://titan.local", null);
+    private final ProxyRoute zeus = new ProxyRoute("zeus", 1, "http://zeus.local", null);
+
+    @Test
+    void keyIgnoresTheOrderOfQueryParameters() {
+        MockHttpServletRequest first = request();
+        first.addParameter("b", "2");
+        first.addParameter("a", "1");
+        MockHttpServletRequest second = request();
+        second.addParameter("a", "1");
+        second.addParameter("b", "2");
+
+        assertEquals(cache.key(titan, "users", first), cache.key(titan, "users", second));
+    }
+
+    @Test
+    void keyKeepsRepeatedQueryParameters() {
+        MockHttpServletRequest once = request();
+        once.addParameter("id", "1");
+        MockHttpServletRequest twice = request();
+        twice.addParameter("id", "1", "2");
+
+        assertNotEquals(cache.key(titan, "users", once), cache.key(titan, "users", twice));
+    }
+
+    @Test
+    void keyEncodesQueryParametersUnambiguously() {
+        MockHttpServletRequest joined = request();
+        joined.addParameter("a", "1&b=2");
+        MockHttpServletRequest split = request();
+        split.addParameter("a", "1");
+        split.addParameter("b", "2");
+
+        assertNotEquals(cache.key(titan, "users", joined), cache.key(titan, "users", split));
+    }
+
+    @Test
+    void keySeparatesRoutesAndEndpoints() {
+        String key = cache.key(titan, "users", request());
+        assertNotEquals(key, cache.key(zeus, "users", request()));
+        assertNotEquals(key, cache.key(titan, "doctors", request()));
+    }
+
+    @Test
+    void keyCoversForwardedHeadersButNotCorrelationHeaders() {
+        MockHttpServletRequest english = request();
+        english.addHeader("Accept-Language", "en");
+        MockHttpServletRequest german = request();
+        german.addHeader("Accept-Language", "de");
+        MockHttpServletRequest traced = request();
+        traced.addHeader("Accept-Language", "en");
+        traced.addHeader("X-Request-Id", "req-1");
+
+        String key = cache.key(titan, "users", english);
+        assertNotEquals(key, cache.key(titan, "users", german));
+        assertEquals(key, cache.key(titan, "users", traced));
+    }
+
+    @Test
+    void keyCoversTheAuthorizedServicesInAnyOrder() {
+        MockHttpServletRequest titanOnly = request(List.of("titan"));
+        MockHttpServletRequest both = request(List.of("zeus", "titan"));
+        MockHttpServletRequest bothSorted = request(List.of("titan", "zeus"));
+
+        String key = cache.key(titan, "users", both);
+        assertNotEquals(key, cache.key(titan, "users", titanOnly));
+        assertEquals(key, cache.key(titan, "users", bothSorted));
+    }
+
+    @Test
+    void keyIgnoresTheTokenSubject() {
+        MockHttpServletRequest alice = request();
+        alice.setAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTRIBUTE,
+                new VerifiedToken("alice", List.of("titan"), Long.MAX_VALUE));
+        MockHttpServletRequest bob = request();
+        bob.setAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTRIBUTE,
+                new VerifiedToken("bob", List.of("titan"), Long.MAX_VALUE));
+
+        assertEquals(cache.key(titan, "users", alice), cache.key(titan, "users", bob));
+    }
+
+    @Test
+    void sharedMaxAgeWinsOverMaxAge() {
+        assertEquals(60_000, ResponseCache.freshnessMillis(headers("max-age=10, s-maxage=60")));
+        assertEquals(60_000, ResponseCache.freshnessMillis(headers("s-maxage=60, max-age=10")));
+        assertEquals(10_000, ResponseCache.freshnessMillis(headers("public, max-age=10")));
+    }
+
+    @Test
+    void neverStoresPrivateOrNoStoreResponses() {
+        assertEquals(-1, ResponseCache.freshnessMillis(headers("no-store")));
+        assertEquals(-1, ResponseCache.freshnessMillis(headers("private, max-age=60")));
+        assertEquals(-1, ResponseCache.freshnessMillis(headers("Max-Age=60, No-Store")));
+    }
+
+    @Test
+    void storesNoCacheResponsesAsAlreadyStale() {
+        assertEquals(0, ResponseCache.freshnessMillis(headers("no-cache")));
+        assertEquals(0, ResponseCache.freshnessMillis(headers("max-age=60, no-cache")));
+    }
+
+    @Test
+    void neverStoresResponsesVaryingOnEverything() {
+        HttpHeaders headers = headers("max-age=60");
+        headers.setVary(List.of("*"));
+        assertEquals(-1, ResponseCache.freshnessMillis(headers));
+    }
+
+    @Test
+    void measuresExpiresFromTheResponseDate() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setDate(DATE);
+        headers.setExpires(DATE + 120_000);
+        assertEquals(120_000, ResponseCache.freshnessMillis(headers));
+
+        headers.setExpires(DATE - 120_000);
+        assertEquals(0, ResponseCache.freshnessMillis(headers));
+    }
+
+    @Test
+    void prefersMaxAgeOverExpires() {
+        HttpHeaders headers = headers("max-age=5");
+        headers.setDate(DATE);
+        headers.setExpires(DATE + 120_000);
+        assertEquals(5_000, ResponseCache.freshnessMillis(headers));
+    }
+
+    @Test
+    void treatsResponsesWithoutOrWithABadLifetimeAsStale() {
+        assertEquals(0, ResponseCache.freshnessMillis(new HttpHeaders()));
+        assertEquals(0, ResponseCache.freshnessMillis(headers("max-age=soon")));
+    }
+
+    @Test
+    void storesFreshSuccessfulResponses() {
+        cache.store("key", response(200, headers("max-age=60")));
+
+        CachedResponse cached = cache.get("key");
+        assertNotNull(cached);
+        assertTrue(cached.isFresh(System.currentTimeMillis()));
+        assertArrayEquals(BODY, cached.getResponse().getBody());
+    }
+
+    @Test
+    void skipsResponsesThatCannotBeReused() {
+        cache.store("error", response(500, headers("max-age=60")));
+        cache.store("no-store", response(200, headers("no-store")));
+        cache.store("no-validator", response(200, headers("no-cache")));
+        config.setMaxEntryBytes(BODY.length - 1);
+        cache.store("large", response(200, headers("max-age=60")));
+
+        assertNull(cache.get("error"));
+        assertNull(cache.get("no-store"));
+        assertNull(cache.get("no-validator"));
+        assertNull(cache.get("large"));
+    }
+
+    @Test
+    void keepsStaleResponsesWithAValidatorForRevalidation() {
+        HttpHeaders headers = headers("no-cache");
+        headers.setETag("\"v1\"");
+        cache.store("key", response(200, headers));
+
+        CachedResponse cached = cache.get("key");
+        assertNotNull(cached);
+        assertFalse(cached.isFresh(System.currentTimeMillis()));
+        assertTrue(cached.hasValidator());
+    }
+
+    @Test
+    void refreshesAnEntryFromA304() {
+        HttpHeaders headers = headers("no-cache");
+        headers.setETag("\"v1\"");
+        headers.set("Content-Language", "en");
+        cache.store("key", response(200, headers));
+        CachedResponse stale = cache.get("key");
+
+        HttpHeaders notModifiedHeaders = headers("max-age=60");
+        notModifiedHeaders.setETag("\"v2\"");
+        CachedResponse refreshed = cache.revalidated("key", stale,
+                new UpstreamResponse(304, notModifiedHeaders, new byte[0]));
+
+        assertTrue(refreshed.isFresh(System.currentTimeMillis()));
+        assertEquals(200, refreshed.getResponse().getStatus());
+        assertArrayEquals(BODY, refreshed.getResponse().getBody());
+        assertEquals("max-age=60", refreshed.getResponse().getHeaders().getCacheControl());
+        assertEquals("\"v2\"", refreshed.getResponse().getHeaders().getETag());
+        assertEquals("en", refreshed.getResponse().getHeaders().getFirst("Content-Language"));
+        assertSame(refreshed, cache.get("key"));
+        assertEquals(1, meterRegistry.get("proxy.cache.revalidations").tag("result", "not_modified")
+                .counter().count());
+    }
+
+    @Test
+    void countsEntriesReplacedAfterRevalidation() {
+        cache.recordModified();
+        assertEquals(1, meterRegistry.get("proxy.cache.revalidations").tag("result", "modified").counter().count());
+    }
+
+    private static HttpHeaders headers(String cacheControl) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(cacheControl);
+        return headers;
+    }
+
+    private static UpstreamResponse response(int status, HttpHeaders headers) {
+        return new UpstreamResponse(status, headers, BODY);
+    }
+
+    private static MockHttpServletRequest request(List<String> services) {
+        MockHttpServletRequest request = request();
+        request.setAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTRIBUTE,
+                new VerifiedToken("alice", services, Long.MAX_VALUE));
+        return request;
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/proxy/titan/v1/users");
+    }
+}
@@ -0,0 +1,188 @@
+package com.practo.proxy.compression;
+
+import com.practo.proxy.config.CompressionConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCompressorTest {
+
+    private static final byte[] BODY = new byte[4096];
+
+    static {
+        Arrays.fill(BODY, (byte) 'a');
+    }
+
+    private final CompressionConfig config = new CompressionConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResponseCompressor compressor = new ResponseCompressor(config, meterRegistry);
+
+    @Test
+    void asksUpstreamsOnlyForEncodingsTheClientAccepts() {
+        assertEquals("identity", ResponseCompressor.upstreamAcceptEncoding(request(null)));
+        assertEquals("gzip", ResponseCompressor.upstreamAcceptEncoding(request("gzip, deflate")));
+        assertEquals("br", ResponseCompressor.upstreamAcceptEncoding(request("br")));
+        assertEquals("gzip, br", ResponseCompressor.upstreamAcceptEncoding(request("br;q=1.0, GZIP;q=0.5")));
+        assertEquals("gzip", ResponseCompressor.upstreamAcceptEncoding(request("*")));
+    }
+
+    @Test
+    void treatsZeroQualityAsRefused() {
+        assertEquals("identity", ResponseCompressor.upstreamAcceptEncoding(request("gzip;q=0")));
+        assertEquals("br", ResponseCompressor.upstreamAcceptEncoding(request("gzip; q=0.0, br")));
+        assertEquals("gzip", ResponseCompressor.upstreamAcceptEncoding(request("gzip, br;Q=0")));
+        assertEquals("identity", ResponseCompressor.upstreamAcceptEncoding(request("gzip;q=never")));
+    }
+
+    @Test
+    void passesEncodedUpstreamBodiesThrough() throws Exception {
+        HttpHeaders upstream = json();
+        upstream.set(HttpHeaders.CONTENT_ENCODING, "br");
+        upstream.setETag("\"v1\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        write(request("gzip, br"), upstream, 200, response);
+
+        assertEquals("br", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        assertEquals(BODY.length, response.getContentLength());
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+        assertArrayEquals(BODY, response.getContentAsByteArray());
+        assertEquals(1, meterRegistry.get("proxy.compression.responses").tag("mode", "passthrough")
+                .counter().count());
+    }
+
+    @Test
+    void gzipsCompressibleBodiesForClientsThatAcceptIt() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        write(request("gzip"), json(), 200, response);
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        assertNull(response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertArrayEquals(BODY, gunzip(response.getContentAsByteArray()));
+        assertEquals(1, meterRegistry.get("proxy.compression.responses").tag("mode", "gzip").counter().count());
+    }
+
+    @Test
+    void weakensETagsAndDisablesRangesWhenGzipping() throws Exception {
+        HttpHeaders strong = json();
+        strong.setETag("\"v1\"");
+        MockHttpServletResponse strongResponse = new MockHttpServletResponse();
+        strongResponse.setHeader(HttpHeaders.ETAG, "\"v1\"");
+        write(request("gzip"), strong, 200, strongResponse);
+
+        HttpHeaders weak = json();
+        weak.setETag("W/\"v1\"");
+        MockHttpServletResponse weakResponse = new MockHttpServletResponse();
+        weakResponse.setHeader(HttpHeaders.ETAG, "W/\"v1\"");
+        write(request("gzip"), weak, 200, weakResponse);
+
+        assertEquals("W/\"v1\"", strongResponse.getHeader(HttpHeaders.ETAG));
+        assertEquals("none", strongResponse.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals("W/\"v1\"", weakResponse.getHeader(HttpHeaders.ETAG));
+        assertEquals("none", weakResponse.getHeader(HttpHeaders.ACCEPT_RANGES));
+    }
+
+    @Test
+    void leavesBodiesBelowTheMinimumSizeUncompressed() throws Exception {
+        MockHttpServletResponse small = new MockHttpServletResponse();
+        compressor.bodyStream(request("gzip"), json(), 200, config.getMinBytes() - 1, small);
+
+        MockHttpServletResponse unknownLength = new MockHttpServletResponse();
+        compressor.bodyStream(request("gzip"), json(), 200, -1, unknownLength);
+
+        assertNull(small.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(config.getMinBytes() - 1, small.getContentLength());
+        assertEquals("gzip", unknownLength.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void compressesOnlyConfiguredMimeTypes() throws Exception {
+        HttpHeaders vendorJson = new HttpHeaders();
+        vendorJson.setContentType(MediaType.parseMediaType("application/problem+json"));
+        HttpHeaders html = new HttpHeaders();
+        html.setContentType(MediaType.TEXT_HTML);
+        HttpHeaders image = new HttpHeaders();
+        image.setContentType(MediaType.IMAGE_PNG);
+
+        assertEquals("gzip", encodingFor(request("gzip"), vendorJson, 200));
+        assertEquals("gzip", encodingFor(request("gzip"), html, 200));
+        assertNull(encodingFor(request("gzip"), image, 200));
+        assertNull(encodingFor(request("gzip"), new HttpHeaders(), 200));
+    }
+
+    @Test
+    void leavesUncompressedBodiesAloneForClientsThatRefuseGzip() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        write(request("gzip;q=0, br"), json(), 200, response);
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertNull(response.getHeader(HttpHeaders.VARY));
+        assertEquals(BODY.length, response.getContentLength());
+        assertArrayEquals(BODY, response.getContentAsByteArray());
+        assertNull(encodingFor(request(null), json(), 200));
+    }
+
+    @Test
+    void neverCompressesBodilessOrPartialResponses() throws Exception {
+        assertNull(encodingFor(request("gzip"), json(), 204));
+        assertNull(encodingFor(request("gzip"), json(), 206));
+        assertNull(encodingFor(request("gzip"), json(), 304));
+        MockHttpServletRequest head = request("gzip");
+        head.setMethod("HEAD");
+        assertNull(encodingFor(head, json(), 200));
+    }
+
+    @Test
+    void leavesEverythingUncompressedWhenDisabled() throws Exception {
+        config.setEnabled(false);
+        assertNull(encodingFor(request("gzip"), json(), 200));
+    }
+
+    private void write(MockHttpServletRequest request, HttpHeaders upstream, int status,
+                       MockHttpServletResponse response) throws Exception {
+        OutputStream body = compressor.bodyStream(request, upstream, status, BODY.length, response);
+        body.write(BODY);
+        ResponseCompressor.finish(body);
+    }
+
+    private String encodingFor(MockHttpServletRequest request, HttpHeaders upstream, int status) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        compressor.bodyStream(request, upstream, status, BODY.length, response);
+        return response.getHeader(HttpHeaders.CONTENT_ENCODING);
+    }
+
+    private static HttpHeaders json() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return headers;
+    }
+
+    private static MockHttpServletRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/proxy/titan/v1/users");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return request;
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return in.readAllBytes();
+        }
+    }
+}
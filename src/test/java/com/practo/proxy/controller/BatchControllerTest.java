@@ -0,0 +1,152 @@
+package com.practo.proxy.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.practo.proxy.lifecycle.ProxyDrain;
+import com.practo.proxy.security.JwtAuthenticationFilter;
+import com.practo.proxy.security.VerifiedToken;
+import com.practo.proxy.service.BatchDispatcher;
+import com.practo.proxy.service.BatchRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchControllerTest {
+
+    private static final int MAX_BODY_BYTES = 256;
+
+    private final BatchDispatcher batchDispatcher = mock(BatchDispatcher.class);
+    private final ProxyDrain proxyDrain = mock(ProxyDrain.class);
+    private final BatchController controller = new BatchController();
+    private final VerifiedToken token = new VerifiedToken("alice", List.of("titan"), Long.MAX_VALUE);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "batchDispatcher", batchDispatcher);
+        ReflectionTestUtils.setField(controller, "proxyDrain", proxyDrain);
+        ReflectionTestUtils.setField(controller, "objectMapper", new ObjectMapper());
+        when(batchDispatcher.getMaxBodyBytes()).thenReturn(MAX_BODY_BYTES);
+        when(batchDispatcher.getMaxRequests()).thenReturn(2);
+        when(proxyDrain.tryEnter()).thenReturn(true);
+    }
+
+    @Test
+    void dispatchesAParsedBatch() throws Exception {
+        MockHttpServletRequest request = request(
+                "{\"timeoutMillis\":250,\"requests\":[{\"id\":\"u\",\"service\":\"titan\",\"path\":\"users/42\"}]}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        controller.batch(request, response);
+
+        ArgumentCaptor<BatchRequest> batch = ArgumentCaptor.forClass(BatchRequest.class);
+        verify(batchDispatcher).dispatch(batch.capture(), any(), any(), any());
+        assertEquals(250L, batch.getValue().getTimeoutMillis());
+        BatchRequest.Part part = batch.getValue().getRequests().get(0);
+        assertEquals("u", part.getId());
+        assertEquals("titan", part.getService());
+        assertEquals("GET", part.getMethod());
+        assertEquals("users/42", part.getPath());
+        verify(proxyDrain).exit();
+    }
+
+    @Test
+    void refusesCallsWithoutAVerifiedToken() throws Exception {
+        MockHttpServletRequest request = request("{\"requests\":[{\"service\":\"titan\",\"path\":\"a\"}]}");
+        request.removeAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTRIBUTE);
+
+        assertEquals(401, call(request).getStatus());
+    }
+
+    @Test
+    void refusesADeclaredBodyAboveTheLimit() throws Exception {
+        MockHttpServletRequest request = request(padded(MAX_BODY_BYTES + 1));
+
+        assertEquals(413, call(request).getStatus());
+    }
+
+    @Test
+    void refusesAStreamedBodyAboveTheLimit() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/proxy/_batch") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        request.setAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTRIBUTE, token);
+        request.setContent(padded(MAX_BODY_BYTES + 1).getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(413, call(request).getStatus());
+    }
+
+    @Test
+    void acceptsABodyOfExactlyTheLimit() throws Exception {
+        MockHttpServletResponse response = call(request(padded(MAX_BODY_BYTES)));
+
+        assertEquals(200, response.getStatus());
+        verify(batchDispatcher).dispatch(any(), any(), any(), any());
+    }
+
+    @Test
+    void refusesMalformedBodies() throws Exception {
+        assertEquals(400, call(request("{\"requests\":")).getStatus());
+        assertEquals(400, call(request("{\"requests\":[]}")).getStatus());
+        assertEquals(400, call(request("null")).getStatus());
+    }
+
+    @Test
+    void refusesBatchesAboveTheMaximumSize() throws Exception {
+        MockHttpServletRequest request = request("{\"requests\":[{\"service\":\"titan\",\"path\":\"a\"},"
+                + "{\"service\":\"titan\",\"path\":\"b\"},{\"service\":\"titan\",\"path\":\"c\"}]}");
+
+        assertEquals(400, call(request).getStatus());
+    }
+
+    @Test
+    void refusesBatchesWhileDraining() throws Exception {
+        when(proxyDrain.tryEnter()).thenReturn(false);
+
+        MockHttpServletResponse response = call(request("{\"requests\":[{\"service\":\"titan\",\"path\":\"a\"}]}"));
+
+        assertEquals(503, response.getStatus());
+        assertEquals("close", response.getHeader("Connection"));
+        verify(proxyDrain, never()).exit();
+    }
+
+    private MockHttpServletResponse call(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.batch(request, response);
+        if (response.getStatus() != 200) {
+            verify(batchDispatcher, never()).dispatch(any(), any(), any(), any());
+        }
+        return response;
+    }
+
+    private MockHttpServletRequest request(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/proxy/_batch");
+        request.setContentType("application/json");
+        request.setAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTRIBUTE, token);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    /**
+     * Builds a valid one-part batch body of exactly the given length.
+     */
+    private static String padded(int length) {
+        String prefix = "{\"requests\":[{\"service\":\"titan\",\"path\":\"";
+        String suffix = "\"}]}";
+        return prefix + "a".repeat(length - prefix.length() - suffix.length()) + suffix;
+    }
+}
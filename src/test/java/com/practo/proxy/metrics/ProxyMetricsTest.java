@@ -0,0 +1,68 @@
+package com.practo.proxy.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProxyMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ProxyMetrics metrics = new ProxyMetrics(registry);
+
+    @Test
+    void recordsRequestsByRouteMethodAndStatusClass() {
+        metrics.recordRequest("titan", "GET", 200, TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.recordRequest("titan", "GET", 204, TimeUnit.MILLISECONDS.toNanos(7));
+        metrics.recordRequest("titan", "GET", 503, TimeUnit.MILLISECONDS.toNanos(9));
+
+        Timer ok = registry.get("proxy.requests").tags("route", "titan", "method", "GET", "status", "2xx").timer();
+        assertEquals(2, ok.count());
+        assertEquals(12, ok.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1, registry.get("proxy.requests").tags("status", "5xx").timer().count());
+    }
+
+    @Test
+    void recordsPhasesSeparatelyFromRequests() {
+        metrics.recordPhase(ProxyMetrics.PHASE_UPSTREAM_TTFB, "titan", "GET", 200, 1_000);
+        metrics.recordPhase(ProxyMetrics.PHASE_JWT_VERIFY, ProxyMetrics.NO_ROUTE, "GET", 0, 1_000);
+
+        assertEquals(1, registry.get("proxy.phase")
+                .tags("phase", "upstream_ttfb", "route", "titan", "method", "GET", "status", "2xx").timer().count());
+        assertEquals(1, registry.get("proxy.phase")
+                .tags("phase", "jwt_verify", "route", "none", "status", "none").timer().count());
+        assertNull(registry.find("proxy.requests").timer());
+    }
+
+    @Test
+    void foldsUnknownMethodsAndStatusesIntoFixedTags() {
+        metrics.recordRequest("titan", "PROPFIND", 200, 1_000);
+        metrics.recordRequest("titan", null, 200, 1_000);
+        metrics.recordRequest("titan", "GET", 0, 1_000);
+        metrics.recordRequest("titan", "GET", 600, 1_000);
+
+        assertEquals(2, registry.get("proxy.requests").tags("method", "OTHER").timer().count());
+        assertEquals(2, registry.get("proxy.requests").tags("method", "GET", "status", "none").timer().count());
+    }
+
+    @Test
+    void keepsRoutesApart() {
+        metrics.recordRequest("titan", "GET", 200, 1_000);
+        metrics.recordRequest("zeus", "GET", 200, 1_000);
+        metrics.recordRequest("zeus", "GET", 200, 1_000);
+
+        assertEquals(1, registry.get("proxy.requests").tags("route", "titan").timer().count());
+        assertEquals(2, registry.get("proxy.requests").tags("route", "zeus").timer().count());
+    }
+
+    @Test
+    void rejectsUnknownPhases() {
+        assertThrows(IllegalArgumentException.class,
+                () -> metrics.recordPhase("dns", "titan", "GET", 0, 1_000));
+    }
+}
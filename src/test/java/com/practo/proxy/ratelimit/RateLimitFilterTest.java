@@ -0,0 +1,108 @@
+package com.practo.proxy.ratelimit;
+
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.routing.RouteTable;
+import com.practo.proxy.security.JwtAuthenticationFilter;
+import com.practo.proxy.security.VerifiedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RateLimitFilterTest {
+
+    private final RateLimiter rateLimiter = mock(RateLimiter.class);
+    private final RouteTable routeTable = mock(RouteTable.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProxyRoute titan = new ProxyRoute("titan", 0, "http://titan.local", null);
+    private final ProxyRoute zeus = new ProxyRoute("zeus", 1, "http://zeus.local", null);
+    private final RateLimitFilter filter = new RateLimitFilter();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(filter, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(filter, "routeTable", routeTable);
+        ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+        when(rateLimiter.isEnabled()).thenReturn(true);
+        when(routeTable.resolve("/titan/v1/users")).thenReturn(titan);
+        when(routeTable.resolve("/zeus/v1/users")).thenReturn(zeus);
+    }
+
+    @Test
+    void passesRequestsWithinTheLimit() throws Exception {
+        when(rateLimiter.tryAcquire("alice", "titan")).thenReturn(0L);
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/proxy/titan/v1/users"), response, chain);
+
+        assertNotNull(chain.getRequest());
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void refusesRequestsOverTheLimitWithRetryAfter() throws Exception {
+        when(rateLimiter.tryAcquire("alice", "titan")).thenReturn(TimeUnit.MILLISECONDS.toNanos(1_500));
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/proxy/titan/v1/users"), response, chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(429, response.getStatus());
+        assertEquals("2", response.getHeader("Retry-After"));
+        assertEquals(1, meterRegistry.get("proxy.ratelimit.rejected").tag("service", "titan").counter().count());
+    }
+
+    @Test
+    void leavesServicesTheTokenDoesNotGrantToTheController() throws Exception {
+        when(rateLimiter.tryAcquire(anyString(), anyString())).thenReturn(TimeUnit.SECONDS.toNanos(1));
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request("/proxy/zeus/v1/users"), response, chain);
+
+        assertNotNull(chain.getRequest());
+        assertEquals(200, response.getStatus());
+        verify(rateLimiter, never()).tryAcquire(anyString(), anyString());
+    }
+
+    @Test
+    void leavesUnauthenticatedAndUnroutedRequestsAlone() throws Exception {
+        MockHttpServletRequest anonymous = new MockHttpServletRequest("GET", "/proxy/titan/v1/users");
+        MockFilterChain anonymousChain = new MockFilterChain();
+        filter.doFilter(anonymous, new MockHttpServletResponse(), anonymousChain);
+
+        MockFilterChain unroutedChain = new MockFilterChain();
+        filter.doFilter(request("/proxy/nope/v1/users"), new MockHttpServletResponse(), unroutedChain);
+
+        assertNotNull(anonymousChain.getRequest());
+        assertNotNull(unroutedChain.getRequest());
+        verify(rateLimiter, never()).tryAcquire(anyString(), anyString());
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        BitSet grants = new BitSet();
+        grants.set(0);
+        request.setAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTRIBUTE,
+                new VerifiedToken("alice", List.of("titan"), Long.MAX_VALUE).withRouteGrants(grants));
+        return request;
+    }
+}
@@ -0,0 +1,108 @@
+package com.practo.proxy.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void admitsTheBurstAtOnceThenReportsTheWaitForTheNextToken() {
+        long now = 1_000_000_000L;
+        TokenBucket bucket = new TokenBucket(10, 5, now);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(now), "request " + i);
+        }
+        assertEquals(INTERVAL, bucket.tryAcquire(now));
+        assertEquals(INTERVAL / 2, bucket.tryAcquire(now + INTERVAL / 2));
+    }
+
+    @Test
+    void refillsOneTokenPerEmissionInterval() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(10, 2, now);
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(0, bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now) > 0);
+
+        now += INTERVAL;
+        assertEquals(0, bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now) > 0);
+    }
+
+    @Test
+    void idleTimeRefillsNoMoreThanTheBurst() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(10, 3, now);
+        now += TimeUnit.MINUTES.toNanos(10);
+
+        int admitted = 0;
+        while (bucket.tryAcquire(now) == 0) {
+            admitted++;
+        }
+        assertEquals(3, admitted);
+    }
+
+    @Test
+    void burstOfOneAdmitsOneRequestPerInterval() {
+        TokenBucket bucket = new TokenBucket(10, 1, 0);
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(INTERVAL, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(INTERVAL));
+    }
+
+    @Test
+    void comparesTimesAcrossNanoTimeWraparound() {
+        long now = Long.MAX_VALUE - INTERVAL / 2;
+        TokenBucket bucket = new TokenBucket(10, 1, now);
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(INTERVAL, bucket.tryAcquire(now));
+
+        long wrapped = now + INTERVAL;
+        assertTrue(wrapped < 0);
+        assertEquals(0, bucket.tryAcquire(wrapped));
+    }
+
+    @Test
+    void concurrentCallersShareTheBurstExactly() throws InterruptedException {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(1, 50, now);
+        int threads = 8;
+        int attemptsPerThread = 1_000;
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        if (bucket.tryAcquire(now) == 0) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(50, admitted.get());
+    }
+}
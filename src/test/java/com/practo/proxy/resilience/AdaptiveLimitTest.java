@@ -0,0 +1,151 @@
+package com.practo.proxy.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    void clampsTheInitialLimit() {
+        assertEquals(50, new AdaptiveLimit(100, 5, 50).getLimit());
+        assertEquals(5, new AdaptiveLimit(1, 5, 50).getLimit());
+        assertEquals(1, new AdaptiveLimit(0, 0, 50).getLimit());
+    }
+
+    @Test
+    void admitsUpToTheLimitAndFreesPermitsOnCompletion() {
+        AdaptiveLimit limit = new AdaptiveLimit(3, 1, 10);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(3, limit.getInFlight());
+
+        limit.onIgnore();
+        assertEquals(2, limit.getInFlight());
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void backsOffOnDroppedCalls() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 5, 100);
+        limit.tryAcquire();
+        limit.onComplete(FAST, true);
+        assertEquals(18, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+
+        for (int i = 0; i < 50; i++) {
+            limit.tryAcquire();
+            limit.onComplete(FAST, true);
+        }
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    void growsWhileLatencyStaysAtItsMinimum() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 5, 200);
+        for (int i = 0; i < 5; i++) {
+            saturate(limit, FAST);
+        }
+        assertTrue(limit.getLimit() > 20, "limit " + limit.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhileTheUpstreamIsMostlyIdle() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 5, 200);
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.onComplete(FAST, false);
+        }
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    void shrinksOnceLatencyRisesWithQueueing() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 5, 200);
+        for (int i = 0; i < 3; i++) {
+            saturate(limit, FAST);
+        }
+        int grown = limit.getLimit();
+        for (int i = 0; i < 10; i++) {
+            saturate(limit, SLOW);
+        }
+        assertTrue(limit.getLimit() < grown, "limit " + limit.getLimit() + " after " + grown);
+    }
+
+    @Test
+    void staysWithinItsBounds() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 5, 30);
+        for (int i = 0; i < 20; i++) {
+            saturate(limit, FAST);
+            assertTrue(limit.getLimit() <= 30);
+        }
+        for (int i = 0; i < 20; i++) {
+            saturate(limit, SLOW * 10);
+            assertTrue(limit.getLimit() >= 5);
+        }
+    }
+
+    @Test
+    void concurrentCallersNeverExceedTheLimitBounds() throws InterruptedException {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 2, 16);
+        int threads = 8;
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 20_000; i++) {
+                    if (limit.tryAcquire()) {
+                        maxInFlight.accumulateAndGet(limit.getInFlight(), Math::max);
+                        if (i % 3 == 0) {
+                            limit.onIgnore();
+                        } else {
+                            limit.onComplete(FAST + thread, i % 101 == 0);
+                        }
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(0, limit.getInFlight());
+        assertTrue(maxInFlight.get() <= 16, "in flight " + maxInFlight.get());
+        assertTrue(limit.getLimit() >= 2 && limit.getLimit() <= 16);
+    }
+
+    /**
+     * Admits as many calls as the limit allows, then completes them all with one round trip time,
+     * so the upstream is kept as busy as the limit lets it be.
+     */
+    private static void saturate(AdaptiveLimit limit, long rttNanos) {
+        int admitted = 0;
+        while (limit.tryAcquire()) {
+            admitted++;
+        }
+        for (int i = 0; i < admitted; i++) {
+            limit.onComplete(rttNanos, false);
+        }
+    }
+}
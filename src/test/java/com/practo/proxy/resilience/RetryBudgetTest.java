@@ -0,0 +1,91 @@
+package com.practo.proxy.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    @Test
+    void startsWithOneSecondOfTheMinimumRetries() {
+        RetryBudget budget = new RetryBudget(0.1, 2);
+        assertEquals(2, budget.available());
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    void earnsOneRetryPerRatioOfCalls() {
+        RetryBudget budget = new RetryBudget(0.1, 0);
+        assertFalse(budget.tryWithdraw());
+
+        for (int i = 0; i < 9; i++) {
+            budget.recordCall();
+        }
+        assertFalse(budget.tryWithdraw());
+        budget.recordCall();
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    void capsTheBalance() {
+        RetryBudget budget = new RetryBudget(1.0, 0);
+        for (int i = 0; i < 1_000; i++) {
+            budget.recordCall();
+        }
+        assertEquals(10, budget.available());
+    }
+
+    @Test
+    void refillsTheMinimumOverTime() throws InterruptedException {
+        RetryBudget budget = new RetryBudget(0, 100);
+        while (budget.tryWithdraw()) {
+            // spend the initial balance
+        }
+        Thread.sleep(50);
+        assertTrue(budget.tryWithdraw());
+    }
+
+    @Test
+    void concurrentWithdrawalsNeverOverdraw() throws InterruptedException {
+        RetryBudget budget = new RetryBudget(1.0, 0);
+        for (int i = 0; i < 10; i++) {
+            budget.recordCall();
+        }
+        int threads = 8;
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    if (budget.tryWithdraw()) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(10, granted.get());
+        assertEquals(0, budget.available());
+    }
+}
@@ -0,0 +1,193 @@
+package com.practo.proxy.routing;
+
+import com.practo.proxy.config.HeaderPolicyConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HeaderPolicyTest {
+
+    private final HeaderPolicy policy = HeaderPolicy.compile(new HeaderPolicyConfig.Policy());
+
+    @Test
+    void forwardsAllowedRequestHeadersOnly() {
+        MockHttpServletRequest request = request();
+        request.addHeader("Accept", "application/json");
+        request.addHeader("X-B3-TraceId", "80f198ee56343ba8");
+        request.addHeader("Authorization", "Bearer token");
+        request.addHeader("Cookie", "session=1");
+        request.addHeader("Accept-Encoding", "gzip");
+        request.addHeader("X-Internal", "1");
+
+        HttpHeaders upstream = new HttpHeaders();
+        policy.copyRequestHeaders(request, upstream);
+
+        assertEquals("application/json", upstream.getFirst("Accept"));
+        assertEquals("80f198ee56343ba8", upstream.getFirst("X-B3-TraceId"));
+        assertNull(upstream.get("Authorization"));
+        assertNull(upstream.get("Cookie"));
+        assertNull(upstream.get("Accept-Encoding"));
+        assertNull(upstream.get("X-Internal"));
+    }
+
+    @Test
+    void keepsRepeatedRequestHeaderValues() {
+        MockHttpServletRequest request = request();
+        request.addHeader("Accept", "application/json");
+        request.addHeader("Accept", "text/plain");
+
+        HttpHeaders upstream = new HttpHeaders();
+        policy.copyRequestHeaders(request, upstream);
+
+        assertEquals(List.of("application/json", "text/plain"), upstream.get("Accept"));
+    }
+
+    @Test
+    void dropsHeadersNominatedByConnection() {
+        MockHttpServletRequest request = request();
+        request.addHeader("Connection", "close, accept-language");
+        request.addHeader("Accept", "application/json");
+        request.addHeader("Accept-Language", "en");
+
+        HttpHeaders upstream = new HttpHeaders();
+        policy.copyRequestHeaders(request, upstream);
+
+        assertEquals("application/json", upstream.getFirst("Accept"));
+        assertNull(upstream.get("Accept-Language"));
+        assertNull(upstream.get("Connection"));
+    }
+
+    @Test
+    void appendsTheClientToTheForwardingHeaders() {
+        MockHttpServletRequest request = request();
+        request.addHeader("X-Forwarded-For", "10.0.0.1");
+
+        HttpHeaders upstream = new HttpHeaders();
+        policy.copyRequestHeaders(request, upstream);
+
+        assertEquals(List.of("10.0.0.1, 10.0.0.2"), upstream.get("X-Forwarded-For"));
+        assertEquals("http", upstream.getFirst("X-Forwarded-Proto"));
+        assertEquals("proxy.local", upstream.getFirst("X-Forwarded-Host"));
+    }
+
+    @Test
+    void addsNoForwardingHeadersWhenDisabled() {
+        HeaderPolicyConfig.Policy config = new HeaderPolicyConfig.Policy();
+        config.setForwarded(false);
+
+        HttpHeaders upstream = new HttpHeaders();
+        HeaderPolicy.compile(config).copyRequestHeaders(request(), upstream);
+
+        assertNull(upstream.get("X-Forwarded-For"));
+        assertNull(upstream.get("X-Forwarded-Proto"));
+        assertNull(upstream.get("X-Forwarded-Host"));
+    }
+
+    @Test
+    void sharedRequestCopiesLeaveOutPerClientHeaders() {
+        MockHttpServletRequest request = request();
+        request.addHeader("Accept", "application/json");
+        request.addHeader("X-Request-Id", "req-1");
+        request.addHeader("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+        request.addHeader("X-B3-TraceId", "80f198ee56343ba8");
+
+        HttpHeaders upstream = new HttpHeaders();
+        policy.copySharedRequestHeaders(request, upstream);
+
+        assertEquals("application/json", upstream.getFirst("Accept"));
+        assertNull(upstream.get("X-Request-Id"));
+        assertNull(upstream.get("traceparent"));
+        assertNull(upstream.get("X-B3-TraceId"));
+        assertNull(upstream.get("X-Forwarded-For"));
+        assertNull(upstream.get("X-Forwarded-Proto"));
+        assertNull(upstream.get("X-Forwarded-Host"));
+    }
+
+    @Test
+    void copiesAllowedResponseHeadersOnly() {
+        HttpHeaders upstream = new HttpHeaders();
+        upstream.add("ETag", "\"v1\"");
+        upstream.add("X-Request-Id", "req-1");
+        upstream.add("Set-Cookie", "session=1");
+        upstream.add("Transfer-Encoding", "chunked");
+        upstream.add("X-Internal", "1");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        policy.copyResponseHeaders(upstream, response);
+
+        assertEquals("\"v1\"", response.getHeader("ETag"));
+        assertEquals("req-1", response.getHeader("X-Request-Id"));
+        assertNull(response.getHeader("Set-Cookie"));
+        assertNull(response.getHeader("Transfer-Encoding"));
+        assertNull(response.getHeader("X-Internal"));
+    }
+
+    @Test
+    void sharedResponseCopiesLeaveOutCorrelationHeaders() {
+        HttpHeaders upstream = new HttpHeaders();
+        upstream.add("ETag", "\"v1\"");
+        upstream.add("X-Request-Id", "req-1");
+        upstream.add("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        policy.copySharedResponseHeaders(upstream, response);
+
+        assertEquals("\"v1\"", response.getHeader("ETag"));
+        assertNull(response.getHeader("X-Request-Id"));
+        assertNull(response.getHeader("traceparent"));
+    }
+
+    @Test
+    void keyCoversNegotiatedHeaders() {
+        MockHttpServletRequest english = request();
+        english.addHeader("Accept-Language", "en");
+        MockHttpServletRequest german = request();
+        german.addHeader("Accept-Language", "de");
+
+        assertNotEquals(key(english), key(german));
+    }
+
+    @Test
+    void keyIgnoresCorrelationAndConditionalHeaders() {
+        MockHttpServletRequest plain = request();
+        plain.addHeader("Accept", "application/json");
+        MockHttpServletRequest traced = request();
+        traced.addHeader("Accept", "application/json");
+        traced.addHeader("X-Request-Id", "req-1");
+        traced.addHeader("X-B3-TraceId", "80f198ee56343ba8");
+        traced.addHeader("If-None-Match", "\"v1\"");
+        traced.addHeader("Range", "bytes=0-99");
+
+        assertEquals(key(plain), key(traced));
+    }
+
+    @Test
+    void keyIgnoresHeaderNameCase() {
+        MockHttpServletRequest lower = request();
+        lower.addHeader("accept-language", "en");
+        MockHttpServletRequest upper = request();
+        upper.addHeader("ACCEPT-LANGUAGE", "en");
+
+        assertEquals(key(lower), key(upper));
+    }
+
+    private String key(MockHttpServletRequest request) {
+        StringBuilder key = new StringBuilder();
+        policy.appendKey(request, key);
+        return key.toString();
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/proxy/titan/v1/users/42");
+        request.setRemoteAddr("10.0.0.2");
+        request.addHeader("Host", "proxy.local");
+        return request;
+    }
+}
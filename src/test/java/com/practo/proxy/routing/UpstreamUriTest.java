@@ -0,0 +1,52 @@
+package com.practo.proxy.routing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpstreamUriTest {
+
+    private static final String HOST = "http://titan.local/";
+
+    @Test
+    void forwardsValidInputVerbatim() {
+        assertEquals("http://titan.local/users/a%2Fb;v=1?x=1&x=2&y=%C3%A9&z",
+                UpstreamUri.build(HOST, "users/a%2Fb;v=1", "x=1&x=2&y=%C3%A9&z").toString());
+    }
+
+    @Test
+    void omitsAMissingOrEmptyQuery() {
+        assertEquals("http://titan.local/users", UpstreamUri.build(HOST, "users", null).toString());
+        assertEquals("http://titan.local/users", UpstreamUri.build(HOST, "users", "").toString());
+    }
+
+    @Test
+    void encodesCharactersThatAreIllegalInAUri() {
+        assertEquals("http://titan.local/a%20b?q=c%20d%7Ce%23",
+                UpstreamUri.build(HOST, "a b", "q=c d|e#").toString());
+    }
+
+    @Test
+    void encodesStrayPercentSigns() {
+        assertEquals("http://titan.local/100%25?p=%254&q=%25zz",
+                UpstreamUri.build(HOST, "100%", "p=%4&q=%zz").toString());
+    }
+
+    @Test
+    void encodesUndecodedRequestBytesOneByOne() {
+        assertEquals("http://titan.local/caf%E9?q=%E9",
+                UpstreamUri.build(HOST, "caf\u00E9", "q=\u00E9").toString());
+    }
+
+    @Test
+    void encodesOtherCharactersAsUtf8() {
+        assertEquals("http://titan.local/%E2%82%AC?q=%F0%9F%98%80",
+                UpstreamUri.build(HOST, "\u20AC", "q=\uD83D\uDE00").toString());
+    }
+
+    @Test
+    void keepsTheQueryOutOfThePath() {
+        assertEquals("http://titan.local/a%3Fb?c=d?e",
+                UpstreamUri.build(HOST, "a?b", "c=d?e").toString());
+    }
+}
@@ -0,0 +1,310 @@
+package com.practo.proxy.service;
+
+import com.practo.proxy.accesslog.AccessLog;
+import com.practo.proxy.cache.ResponseCache;
+import com.practo.proxy.metrics.ProxyMetrics;
+import com.practo.proxy.ratelimit.RateLimiter;
+import com.practo.proxy.resilience.UpstreamUnavailableException;
+import com.practo.proxy.routing.ProxyRoute;
+import com.practo.proxy.routing.RouteTable;
+import com.practo.proxy.security.VerifiedToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchDispatcherTest {
+
+    private static final int MAX_BUFFERED_BYTES = 16;
+    private static final Pattern PART_HEAD = Pattern.compile("Content-ID: <([^>]*)>\r\nX-Status: (\\d+)\r\n");
+
+    private final ExternalService externalService = mock(ExternalService.class);
+    private final RouteTable routeTable = mock(RouteTable.class);
+    private final RateLimiter rateLimiter = mock(RateLimiter.class);
+    private final ProxyMetrics proxyMetrics = mock(ProxyMetrics.class);
+    private final AccessLog accessLog = mock(AccessLog.class);
+    private final ResponseCache responseCache = mock(ResponseCache.class);
+    private final ProxyRoute titan = new ProxyRoute("titan", 0, "http://titan.local", null);
+    private final ProxyRoute zeus = new ProxyRoute("zeus", 1, "http://zeus.local", null);
+    private final BatchDispatcher dispatcher = new BatchDispatcher();
+    private VerifiedToken token;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dispatcher, "externalService", externalService);
+        ReflectionTestUtils.setField(dispatcher, "routeTable", routeTable);
+        ReflectionTestUtils.setField(dispatcher, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(dispatcher, "proxyMetrics", proxyMetrics);
+        ReflectionTestUtils.setField(dispatcher, "accessLog", accessLog);
+        ReflectionTestUtils.setField(dispatcher, "responseCache", responseCache);
+        ReflectionTestUtils.setField(dispatcher, "maxRequests", 10);
+        ReflectionTestUtils.setField(dispatcher, "defaultTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(dispatcher, "maxTimeout", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(dispatcher, "maxBodyBytes", 1024);
+        when(responseCache.getMaxEntryBytes()).thenReturn(MAX_BUFFERED_BYTES);
+        when(routeTable.getRoute("titan")).thenReturn(titan);
+        when(routeTable.getRoute("zeus")).thenReturn(zeus);
+        BitSet grants = new BitSet();
+        grants.set(titan.getIndex());
+        token = new VerifiedToken("alice", List.of("titan"), Long.MAX_VALUE).withRouteGrants(grants);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.destroy();
+    }
+
+    @Test
+    void framesEachPartAsMultipartMixed() throws Exception {
+        HttpHeaders upstreamHeaders = new HttpHeaders();
+        upstreamHeaders.setContentType(MediaType.APPLICATION_JSON);
+        when(externalService.exchange(eq(titan), eq(URI.create("http://titan.local/users/42?x=1")),
+                eq(HttpMethod.GET), any(HttpHeaders.class), isNull(), eq(MAX_BUFFERED_BYTES)))
+                .thenReturn(new UpstreamResponse(200, upstreamHeaders, "{\"id\":42}".getBytes(StandardCharsets.UTF_8)));
+
+        MockHttpServletResponse response = dispatch(batch(part("user", "titan", "GET", "/users/42?x=1")));
+
+        assertEquals(200, response.getStatus());
+        String contentType = response.getContentType();
+        assertTrue(contentType.startsWith("multipart/mixed; boundary="), contentType);
+        String boundary = contentType.substring("multipart/mixed; boundary=".length());
+        assertEquals("--" + boundary + "\r\n"
+                + "Content-ID: <user>\r\n"
+                + "X-Status: 200\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: 9\r\n"
+                + "\r\n"
+                + "{\"id\":42}\r\n"
+                + "--" + boundary + "--\r\n", response.getContentAsString());
+        verify(proxyMetrics).recordRequest(eq("titan"), eq("GET"), eq(200), anyLong());
+        verify(accessLog).record(eq("alice"), eq("titan"), eq("GET"), eq("users/42"), eq(200), eq(9L), anyLong());
+    }
+
+    @Test
+    void namesPartsByIndexAndStripsHeaderBreakingCharacters() throws Exception {
+        BatchRequest.Part unnamed = part(null, "nope", "GET", "a");
+        BatchRequest.Part injected = part("a>\r\nX-Status: 200", "nope", "GET", "b");
+
+        Map<String, Integer> statuses = statuses(dispatch(batch(unnamed, injected)));
+
+        assertEquals(Map.of("0", 404, "a   X-Status: 200", 404), statuses);
+    }
+
+    @Test
+    void answersInvalidPartsWithoutCallingTheUpstream() throws Exception {
+        BatchRequest.Part body = part("type", "titan", "POST", "users");
+        body.setBody("{}");
+        body.setContentType("not a media type");
+
+        Map<String, Integer> statuses = statuses(dispatch(batch(
+                part("unknown", "nope", "GET", "users"),
+                part("denied", "zeus", "GET", "users"),
+                part("traversal", "titan", "GET", "users/%2e./admin"),
+                part("method", "titan", "PATCH", "users"),
+                part("path", "titan", "GET", null),
+                body)));
+
+        assertEquals(404, statuses.get("unknown"));
+        assertEquals(403, statuses.get("denied"));
+        assertEquals(400, statuses.get("traversal"));
+        assertEquals(400, statuses.get("method"));
+        assertEquals(400, statuses.get("path"));
+        assertEquals(400, statuses.get("type"));
+        verify(externalService, never()).exchange(any(), any(URI.class), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void checksTheGrantBeforeTheRateLimit() throws Exception {
+        when(rateLimiter.isEnabled()).thenReturn(true);
+        when(rateLimiter.tryAcquire(anyString(), anyString())).thenReturn(100L);
+
+        Map<String, Integer> statuses = statuses(dispatch(batch(
+                part("denied", "zeus", "GET", "users"),
+                part("limited", "titan", "GET", "users"))));
+
+        assertEquals(403, statuses.get("denied"));
+        assertEquals(429, statuses.get("limited"));
+        verify(rateLimiter, never()).tryAcquire("alice", "zeus");
+        verify(externalService, never()).exchange(any(), any(URI.class), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void answersOversizedBodiesAndRepliesAndShedCalls() throws Exception {
+        BatchRequest.Part largeBody = part("request", "titan", "POST", "large");
+        largeBody.setBody("x".repeat(MAX_BUFFERED_BYTES + 1));
+        when(externalService.exchange(eq(titan), eq(URI.create("http://titan.local/reply")), any(), any(),
+                any(), anyInt())).thenReturn(null);
+        when(externalService.exchange(eq(titan), eq(URI.create("http://titan.local/shed")), any(), any(),
+                any(), anyInt())).thenThrow(new UpstreamUnavailableException("titan", "bulkhead_full"));
+
+        Map<String, Integer> statuses = statuses(dispatch(batch(
+                largeBody,
+                part("reply", "titan", "GET", "reply"),
+                part("shed", "titan", "GET", "shed"))));
+
+        assertEquals(413, statuses.get("request"));
+        assertEquals(502, statuses.get("reply"));
+        assertEquals(503, statuses.get("shed"));
+    }
+
+    @Test
+    void answersPartsStillRunningAtTheDeadlineWith504() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        when(externalService.exchange(eq(titan), eq(URI.create("http://titan.local/slow")), any(), any(),
+                any(), anyInt())).thenAnswer(invocation -> {
+                    blocked.await();
+                    return null;
+                });
+        when(externalService.exchange(eq(titan), eq(URI.create("http://titan.local/fast")), any(), any(),
+                any(), anyInt())).thenReturn(new UpstreamResponse(204, new HttpHeaders(), new byte[0]));
+        BatchRequest batch = batch(part("slow", "titan", "GET", "slow"), part("fast", "titan", "GET", "fast"));
+        batch.setTimeoutMillis(100L);
+
+        long start = System.nanoTime();
+        MockHttpServletResponse response = dispatch(batch);
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        Map<String, Integer> statuses = statuses(response);
+        assertEquals(504, statuses.get("slow"));
+        assertEquals(204, statuses.get("fast"));
+        assertTrue(elapsedMillis < 5_000, "took " + elapsedMillis + " ms");
+        assertTrue(response.getContentAsString().indexOf("<fast>") < response.getContentAsString().indexOf("<slow>"));
+        verify(proxyMetrics, times(1)).recordRequest(eq("titan"), eq("GET"), eq(504), anyLong());
+        verify(proxyMetrics, times(2)).recordRequest(eq("titan"), eq("GET"), anyInt(), anyLong());
+        verify(accessLog).record(eq("alice"), eq("titan"), eq("GET"), eq("slow"), eq(504), eq(0L), anyLong());
+    }
+
+    @Test
+    void capsTheRequestedDeadline() throws Exception {
+        ReflectionTestUtils.setField(dispatcher, "maxTimeout", Duration.ofMillis(100));
+        CountDownLatch blocked = new CountDownLatch(1);
+        when(externalService.exchange(any(), any(URI.class), any(), any(), any(), anyInt()))
+                .thenAnswer(invocation -> {
+                    blocked.await();
+                    return null;
+                });
+        BatchRequest batch = batch(part("slow", "titan", "GET", "slow"));
+        batch.setTimeoutMillis(60_000L);
+
+        assertEquals(504, statuses(dispatch(batch)).get("slow"));
+    }
+
+    @Test
+    void rejectsPlainDotSegments() {
+        assertTrue(BatchDispatcher.isTraversal(".."));
+        assertTrue(BatchDispatcher.isTraversal("."));
+        assertTrue(BatchDispatcher.isTraversal("users/../admin"));
+        assertTrue(BatchDispatcher.isTraversal("/users/./42"));
+        assertTrue(BatchDispatcher.isTraversal("users/.."));
+    }
+
+    @Test
+    void rejectsEncodedDotSegments() {
+        assertTrue(BatchDispatcher.isTraversal("%2e%2e/admin"));
+        assertTrue(BatchDispatcher.isTraversal("%2E%2E/admin"));
+        assertTrue(BatchDispatcher.isTraversal("users/%2e/42"));
+    }
+
+    @Test
+    void rejectsPartlyEncodedDotSegments() {
+        assertTrue(BatchDispatcher.isTraversal(".%2e/admin"));
+        assertTrue(BatchDispatcher.isTraversal("%2e./admin"));
+        assertTrue(BatchDispatcher.isTraversal("users/.%2E"));
+    }
+
+    @Test
+    void rejectsDotSegmentsBehindEncodedSeparators() {
+        assertTrue(BatchDispatcher.isTraversal("users%2f..%2fadmin"));
+        assertTrue(BatchDispatcher.isTraversal("users%2F%2e%2e%2Fadmin"));
+        assertTrue(BatchDispatcher.isTraversal("users%5c..%5cadmin"));
+        assertTrue(BatchDispatcher.isTraversal("users\\..\\admin"));
+    }
+
+    @Test
+    void rejectsDotSegmentsWithPathParameters() {
+        assertTrue(BatchDispatcher.isTraversal("..;jsessionid=1/admin"));
+        assertTrue(BatchDispatcher.isTraversal("users/%2e%2e;x/admin"));
+    }
+
+    @Test
+    void acceptsOrdinaryPaths() {
+        assertFalse(BatchDispatcher.isTraversal("users/42"));
+        assertFalse(BatchDispatcher.isTraversal("/users/42?sort=name"));
+        assertFalse(BatchDispatcher.isTraversal("files/a..b"));
+        assertFalse(BatchDispatcher.isTraversal("files/..."));
+        assertFalse(BatchDispatcher.isTraversal("v1.2/users"));
+        assertFalse(BatchDispatcher.isTraversal("users/100%"));
+    }
+
+    @Test
+    void ignoresTheQuery() {
+        assertFalse(BatchDispatcher.isTraversal("users?next=../admin"));
+        assertFalse(BatchDispatcher.isTraversal("users?next=%2e%2e"));
+    }
+
+    private MockHttpServletResponse dispatch(BatchRequest batch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/proxy/_batch");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        dispatcher.dispatch(batch, token, request, response);
+        return response;
+    }
+
+    /**
+     * Reads the id and status of every part of a batch response.
+     */
+    private static Map<String, Integer> statuses(MockHttpServletResponse response) throws Exception {
+        Map<String, Integer> statuses = new HashMap<>();
+        Matcher matcher = PART_HEAD.matcher(response.getContentAsString());
+        while (matcher.find()) {
+            statuses.put(matcher.group(1), Integer.parseInt(matcher.group(2)));
+        }
+        return statuses;
+    }
+
+    private static BatchRequest batch(BatchRequest.Part... parts) {
+        BatchRequest batch = new BatchRequest();
+        batch.setRequests(new ArrayList<>(List.of(parts)));
+        return batch;
+    }
+
+    private static BatchRequest.Part part(String id, String service, String method, String path) {
+        BatchRequest.Part part = new BatchRequest.Part();
+        part.setId(id);
+        part.setService(service);
+        part.setMethod(method);
+        part.setPath(path);
+        return part;
+    }
+}
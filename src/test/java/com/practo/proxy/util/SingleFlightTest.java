@@ -0,0 +1,136 @@
+package com.practo.proxy.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private static final int FOLLOWERS = 7;
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(FOLLOWERS + 1);
+
+    @Test
+    void concurrentCallersWithOneKeyShareOneCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        String result = "reply";
+
+        Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return result;
+        }));
+        awaitInFlight(1);
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < FOLLOWERS; i++) {
+            followers.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                calls.incrementAndGet();
+                return "own call";
+            })));
+        }
+        awaitCoalesced(FOLLOWERS);
+        release.countDown();
+
+        assertSame(result, leader.get(5, TimeUnit.SECONDS));
+        for (Future<String> follower : followers) {
+            assertSame(result, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    void differentKeysRunTheirOwnCalls() {
+        assertEquals("a", singleFlight.execute("a", () -> "a"));
+        assertEquals("b", singleFlight.execute("b", () -> "b"));
+        assertEquals(0, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    void completedCallsAreNotReused() {
+        AtomicInteger calls = new AtomicInteger();
+        singleFlight.execute("key", () -> "first " + calls.incrementAndGet());
+        assertEquals("second 2", singleFlight.execute("key", () -> "second " + calls.incrementAndGet()));
+    }
+
+    @Test
+    void followersReceiveTheLeadersFailure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("upstream failed");
+
+        Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            await(release);
+            throw failure;
+        }));
+        awaitInFlight(1);
+        Future<String> follower = executor.submit(() -> singleFlight.execute("key", () -> "own call"));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertSame(failure, assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+        assertSame(failure, assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    void followersRunTheirOwnCallWhenTheLeaderReturnsNull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            await(release);
+            return null;
+        }));
+        awaitInFlight(1);
+        Future<String> follower = executor.submit(() -> singleFlight.execute("key", () -> "own call"));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertNull(leader.get(5, TimeUnit.SECONDS));
+        assertEquals("own call", follower.get(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitInFlight(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.getInFlightCount() < count) {
+            assertTrue(System.nanoTime() < deadline, "call did not start");
+            Thread.sleep(1);
+        }
+    }
+
+    private void awaitCoalesced(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.getCoalescedCount() < count) {
+            assertTrue(System.nanoTime() < deadline, "callers did not join");
+            Thread.sleep(1);
+        }
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}